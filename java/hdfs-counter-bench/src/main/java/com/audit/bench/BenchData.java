@@ -0,0 +1,231 @@
+package com.audit.bench;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic ORC, Parquet and text files for the benchmarks, generated on the local
+ * filesystem from a fixed seed so every run and every machine counts the same data.
+ *
+ * Tables alternate bigint and string columns ({@link #STRING_WIDTH} characters from a
+ * small alphabet, so codecs have something to compress). Files are named after their
+ * parameters and reused when present; delete the directory to regenerate them.
+ */
+public final class BenchData {
+    
+    /** System property naming the data directory (default: java.io.tmpdir/hdfs-counter-bench) */
+    public static final String DATA_DIR_PROPERTY = "bench.data";
+    
+    private static final long SEED = 20240601L;
+    private static final int STRING_WIDTH = 16;
+    private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".getBytes(StandardCharsets.US_ASCII);
+    
+    private BenchData() {
+    }
+    
+    /**
+     * @param codec ORC compression kind: NONE, ZLIB, SNAPPY, LZO, LZ4 or ZSTD
+     */
+    public static Path orc(Configuration conf, int rows, int columns, String codec) throws IOException {
+        Path path = file(String.format("orc-%d-%d-%s.orc", rows, columns, codec.toLowerCase()));
+        if (exists(conf, path)) {
+            return path;
+        }
+        StringBuilder schema = new StringBuilder("struct<");
+        for (int c = 0; c < columns; c++) {
+            schema.append(c > 0 ? "," : "").append('c').append(c).append(c % 2 == 0 ? ":bigint" : ":string");
+        }
+        TypeDescription type = TypeDescription.fromString(schema.append('>').toString());
+        
+        Path tmp = tmp(path);
+        Random random = new Random(SEED);
+        byte[] value = new byte[STRING_WIDTH];
+        try (Writer writer = OrcFile.createWriter(tmp, OrcFile.writerOptions(conf)
+                .setSchema(type).overwrite(true).compress(CompressionKind.valueOf(codec.toUpperCase())))) {
+            VectorizedRowBatch batch = type.createRowBatch();
+            for (int r = 0; r < rows; r++) {
+                int row = batch.size++;
+                for (int c = 0; c < columns; c++) {
+                    if (c % 2 == 0) {
+                        ((LongColumnVector) batch.cols[c]).vector[row] = random.nextLong();
+                    } else {
+                        ((BytesColumnVector) batch.cols[c]).setVal(row, randomString(random, value));
+                    }
+                }
+                if (batch.size == batch.getMaxSize()) {
+                    writer.addRowBatch(batch);
+                    batch.reset();
+                }
+            }
+            if (batch.size > 0) {
+                writer.addRowBatch(batch);
+            }
+        }
+        return publish(conf, tmp, path);
+    }
+    
+    /**
+     * @param codec Parquet compression codec: UNCOMPRESSED, SNAPPY, GZIP, LZ4_RAW or ZSTD
+     */
+    public static Path parquet(Configuration conf, int rows, int columns, String codec) throws IOException {
+        Path path = file(String.format("parquet-%d-%d-%s.parquet", rows, columns, codec.toLowerCase()));
+        if (exists(conf, path)) {
+            return path;
+        }
+        StringBuilder schema = new StringBuilder("message bench {");
+        for (int c = 0; c < columns; c++) {
+            schema.append(c % 2 == 0 ? " required int64 c" : " required binary c").append(c)
+                    .append(c % 2 == 0 ? ";" : " (UTF8);");
+        }
+        MessageType type = MessageTypeParser.parseMessageType(schema.append(" }").toString());
+        
+        Path tmp = tmp(path);
+        Random random = new Random(SEED);
+        byte[] value = new byte[STRING_WIDTH];
+        SimpleGroupFactory groups = new SimpleGroupFactory(type);
+        String[] names = new String[columns];
+        for (int c = 0; c < columns; c++) {
+            names[c] = "c" + c;
+        }
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(tmp)
+                .withConf(conf)
+                .withType(type)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .withCompressionCodec(CompressionCodecName.valueOf(codec.toUpperCase()))
+                .build()) {
+            for (int r = 0; r < rows; r++) {
+                Group group = groups.newGroup();
+                for (int c = 0; c < columns; c++) {
+                    if (c % 2 == 0) {
+                        group.append(names[c], random.nextLong());
+                    } else {
+                        group.append(names[c], new String(randomString(random, value), StandardCharsets.US_ASCII));
+                    }
+                }
+                writer.write(group);
+            }
+        }
+        return publish(conf, tmp, path);
+    }
+    
+    /**
+     * Comma-separated text
+     *
+     * @param delimiter line delimiter, e.g. "\n" or "\r\n"
+     * @param codec Hadoop codec name (gzip, bzip2, lz4, deflate), or none
+     */
+    public static Path text(Configuration conf, int rows, int columns, String delimiter, String codec)
+            throws IOException {
+        CompressionCodec compression = "none".equalsIgnoreCase(codec)
+                ? null : new CompressionCodecFactory(conf).getCodecByName(codec);
+        if (compression == null && !"none".equalsIgnoreCase(codec)) {
+            throw new IllegalArgumentException("Unknown codec: " + codec);
+        }
+        String suffix = compression == null ? "" : compression.getDefaultExtension();
+        Path path = file(String.format("text-%d-%d-%s.txt%s", rows, columns, delimiterName(delimiter), suffix));
+        if (exists(conf, path)) {
+            return path;
+        }
+        
+        Path tmp = tmp(path);
+        Random random = new Random(SEED);
+        byte[] value = new byte[STRING_WIDTH];
+        byte[] separator = delimiter.getBytes(StandardCharsets.US_ASCII);
+        FileSystem fs = tmp.getFileSystem(conf);
+        OutputStream raw = fs.create(tmp, true);
+        try (OutputStream out = new BufferedOutputStream(
+                compression == null ? raw : compression.createOutputStream(raw), 1 << 16)) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (c > 0) {
+                        out.write(',');
+                    }
+                    if (c % 2 == 0) {
+                        out.write(Long.toString(random.nextLong()).getBytes(StandardCharsets.US_ASCII));
+                    } else {
+                        out.write(randomString(random, value));
+                    }
+                }
+                out.write(separator);
+            }
+        }
+        return publish(conf, tmp, path);
+    }
+    
+    /**
+     * Fail the benchmark setup if a counter disagrees with the generated row count
+     */
+    public static void checkCount(long actual, int expected, Path path) {
+        if (actual != expected) {
+            throw new IllegalStateException("Counted " + actual + " rows in " + path + ", expected " + expected);
+        }
+    }
+    
+    private static Path file(String name) {
+        String dir = System.getProperty(DATA_DIR_PROPERTY,
+                new File(System.getProperty("java.io.tmpdir"), "hdfs-counter-bench").getPath());
+        return new Path(new File(dir, name).getAbsoluteFile().toURI());
+    }
+    
+    private static boolean exists(Configuration conf, Path path) throws IOException {
+        return path.getFileSystem(conf).exists(path);
+    }
+    
+    /**
+     * Files are written under a temporary name and renamed when complete, so an interrupted
+     * run never leaves a truncated file that later runs would reuse
+     */
+    private static Path tmp(Path path) {
+        return new Path(path.getParent(), "." + path.getName() + ".tmp");
+    }
+    
+    private static Path publish(Configuration conf, Path tmp, Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        if (!fs.rename(tmp, path)) {
+            throw new IOException("Failed to rename " + tmp + " to " + path);
+        }
+        // Only the data file is kept; the local filesystem's checksum file is not needed
+        fs.delete(new Path(path.getParent(), "." + path.getName() + ".crc"), false);
+        return path;
+    }
+    
+    private static byte[] randomString(Random random, byte[] value) {
+        for (int i = 0; i < value.length; i++) {
+            value[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return value;
+    }
+    
+    private static String delimiterName(String delimiter) {
+        StringBuilder name = new StringBuilder();
+        for (char ch : delimiter.toCharArray()) {
+            name.append(ch == '\n' ? "lf" : ch == '\r' ? "cr" : String.format("x%02x", (int) ch));
+        }
+        return name.toString();
+    }
+}
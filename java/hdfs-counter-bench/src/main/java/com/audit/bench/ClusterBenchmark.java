@@ -0,0 +1,331 @@
+package com.audit.bench;
+
+import com.audit.HdfsCounter;
+import com.audit.model.CountResult;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.GlobalStorageStatistics;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StorageStatistics;
+import org.apache.hadoop.hdfs.DFSOpsCountStatistics;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end benchmark of {@link HdfsCounter#run(String[])} (listing plus counting) against
+ * an in-process MiniDFSCluster.
+ *
+ * The table is laid out like the hourly provincial tables of the audit config:
+ * statis_ymdh=YYYYMMDDHH/prov_id=NNNNN, 24 hours x 31 provinces, a few small files per
+ * partition and a few huge files in the first partitions. Each --threads value is run
+ * once to warm up and then --runs times; every run reports wall time, NameNode operations
+ * issued by the client (DFSOpsCountStatistics) and peak heap growth. The cluster runs in
+ * the same JVM, so heap figures include it and are only meaningful relative to each other.
+ */
+public final class ClusterBenchmark {
+    
+    private static final String TABLE = "/warehouse/ods_bss.db/to_h_bench";
+    private static final String DATE = "20260119";
+    private static final int FIRST_PROVINCE = 10100;
+    private static final int PROVINCE_STEP = 100;
+    private static final int COLUMNS = 8;
+    private static final int UPLOAD_THREADS = 16;
+    
+    private ClusterBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        // The counter logs through slf4j-simple; per-file INFO lines would swamp the results
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        }
+        CommandLine cmd;
+        Options options = options();
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -cp benchmarks.jar " + ClusterBenchmark.class.getName(), options);
+            System.exit(1);
+            return;
+        }
+        if (cmd.hasOption("help")) {
+            new HelpFormatter().printHelp("java -cp benchmarks.jar " + ClusterBenchmark.class.getName(), options);
+            return;
+        }
+        
+        String format = cmd.getOptionValue("format", "orc").toLowerCase();
+        if (!"orc".equals(format) && !"parquet".equals(format) && !"textfile".equals(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        int provinces = intOption(cmd, "provinces", 31);
+        int hours = intOption(cmd, "hours", 24);
+        int filesPerPartition = intOption(cmd, "files-per-partition", 4);
+        int smallRows = intOption(cmd, "small-rows", 1000);
+        int hugeFiles = intOption(cmd, "huge-files", 3);
+        int hugeRows = intOption(cmd, "huge-rows", 2000000);
+        int runs = intOption(cmd, "runs", 3);
+        int dataNodes = intOption(cmd, "datanodes", 1);
+        String[] counterArgs = cmd.hasOption("counter-args")
+                ? cmd.getOptionValue("counter-args").trim().split("\\s+") : new String[0];
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String value : cmd.getOptionValue("threads", "1,4,16,64").split(",")) {
+            threadCounts.add(Integer.parseInt(value.trim()));
+        }
+        
+        File baseDir = new File(System.getProperty(BenchData.DATA_DIR_PROPERTY,
+                new File(System.getProperty("java.io.tmpdir"), "hdfs-counter-bench").getPath()), "minidfs");
+        Configuration conf = new Configuration();
+        MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf, baseDir).numDataNodes(dataNodes).build();
+        try {
+            cluster.waitActive();
+            FileSystem fs = cluster.getFileSystem();
+            
+            long start = System.currentTimeMillis();
+            Path small = template(conf, format, smallRows);
+            Path huge = hugeFiles > 0 ? template(conf, format, hugeRows) : null;
+            int uploaded = populate(fs, small, huge, provinces, hours, filesPerPartition, hugeFiles);
+            System.out.printf("Populated %d files (%d partitions) in %d ms%n", uploaded, provinces * hours,
+                    System.currentTimeMillis() - start);
+            long expectedRows = (long) (uploaded - hugeFiles) * smallRows + (long) hugeFiles * hugeRows;
+            
+            File confDir = writeClientConf(baseDir, cluster);
+            PrintStream csv = cmd.hasOption("csv")
+                    ? new PrintStream(new FileOutputStream(cmd.getOptionValue("csv")), true, "UTF-8") : null;
+            if (csv != null) {
+                csv.println("threads,run,wall_ms,files,rows,namenode_ops,list_ops,file_info_ops,open_ops,peak_heap_mb");
+            }
+            System.out.printf("%8s %4s %10s %8s %12s %10s %10s %10s %10s %10s%n", "threads", "run", "wall_ms",
+                    "files", "rows", "nn_ops", "list", "file_info", "open", "heap_mb");
+            for (int threads : threadCounts) {
+                List<Long> times = new ArrayList<>();
+                for (int run = 0; run <= runs; run++) {
+                    RunStats stats = countOnce(confDir, format, threads, counterArgs);
+                    if (stats.result.getRowCount() != expectedRows || !"success".equals(stats.result.getStatus())) {
+                        throw new IllegalStateException("Run with " + threads + " threads counted "
+                                + stats.result.getRowCount() + " rows (" + stats.result.getStatus()
+                                + "), expected " + expectedRows);
+                    }
+                    // Run 0 warms up the JIT and the client's connections, it is not reported
+                    if (run == 0) {
+                        continue;
+                    }
+                    times.add(stats.wallMs);
+                    Object[] row = {threads, run, stats.wallMs, stats.result.getFileCount(),
+                            stats.result.getRowCount(), stats.totalOps(), stats.ops("op_list_status"),
+                            stats.ops("op_get_file_status"), stats.ops("op_open"), stats.peakHeapBytes / 1024 / 1024};
+                    System.out.printf("%8d %4d %10d %8d %12d %10d %10d %10d %10d %10d%n", row);
+                    if (csv != null) {
+                        csv.println(String.format("%d,%d,%d,%d,%d,%d,%d,%d,%d,%d", row));
+                    }
+                }
+                Collections.sort(times);
+                System.out.printf("threads=%d median wall %d ms, min %d ms%n", threads,
+                        times.get(times.size() / 2), times.get(0));
+            }
+            if (csv != null) {
+                csv.close();
+            }
+        } finally {
+            cluster.shutdown(true);
+        }
+    }
+    
+    /**
+     * Template file uploaded into every partition, generated locally by {@link BenchData}
+     */
+    private static Path template(Configuration conf, String format, int rows) throws IOException {
+        switch (format) {
+            case "orc":
+                return BenchData.orc(conf, rows, COLUMNS, "ZLIB");
+            case "parquet":
+                return BenchData.parquet(conf, rows, COLUMNS, "SNAPPY");
+            default:
+                return BenchData.text(conf, rows, COLUMNS, "\n", "none");
+        }
+    }
+    
+    /**
+     * Upload the templates into the partition tree in parallel
+     *
+     * @return number of files in the table
+     */
+    private static int populate(FileSystem fs, Path small, Path huge, int provinces, int hours,
+                                int filesPerPartition, int hugeFiles) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(UPLOAD_THREADS);
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+            String extension = small.getName().substring(small.getName().lastIndexOf('.'));
+            for (int h = 0; h < hours; h++) {
+                for (int p = 0; p < provinces; p++) {
+                    Path partition = new Path(TABLE, String.format("statis_ymdh=%s%02d/prov_id=%d",
+                            DATE, h, FIRST_PROVINCE + p * PROVINCE_STEP));
+                    for (int f = 0; f < filesPerPartition; f++) {
+                        Path target = new Path(partition, String.format("part-%05d%s", f, extension));
+                        uploads.add(pool.submit(() -> {
+                            fs.copyFromLocalFile(false, true, small, target);
+                            return null;
+                        }));
+                    }
+                }
+            }
+            for (int i = 0; i < hugeFiles; i++) {
+                Path target = new Path(TABLE, String.format("statis_ymdh=%s00/prov_id=%d/huge-%05d%s",
+                        DATE, FIRST_PROVINCE + (i % provinces) * PROVINCE_STEP, i, extension));
+                uploads.add(pool.submit(() -> {
+                    fs.copyFromLocalFile(false, true, huge, target);
+                    return null;
+                }));
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+            return uploads.size();
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Hadoop conf directory for the counter pointing at the cluster, so HADOOP_CONF_DIR of
+     * the machine running the benchmark is never picked up
+     */
+    private static File writeClientConf(File baseDir, MiniDFSCluster cluster) throws IOException {
+        File confDir = new File(baseDir, "client-conf");
+        if (!confDir.isDirectory() && !confDir.mkdirs()) {
+            throw new IOException("Failed to create " + confDir);
+        }
+        Configuration clientConf = new Configuration(false);
+        clientConf.set(FileSystem.FS_DEFAULT_NAME_KEY, cluster.getFileSystem().getUri().toString());
+        try (OutputStream out = new FileOutputStream(new File(confDir, "core-site.xml"))) {
+            clientConf.writeXml(out);
+        }
+        return confDir;
+    }
+    
+    private static RunStats countOnce(File confDir, String format, int threads, String[] counterArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList("-c", confDir.getPath(), "-p", TABLE, "-f", format,
+                "-t", String.valueOf(threads)));
+        args.addAll(Arrays.asList(counterArgs));
+        
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        long baseline = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+                pool.resetPeakUsage();
+                baseline += pool.getUsage().getUsed();
+            }
+        }
+        StorageStatistics statistics = GlobalStorageStatistics.INSTANCE.get(DFSOpsCountStatistics.NAME);
+        if (statistics != null) {
+            statistics.reset();
+        }
+        
+        long start = System.nanoTime();
+        CountResult result = new HdfsCounter(confDir.getPath()).run(args.toArray(new String[0]));
+        long wallMs = (System.nanoTime() - start) / 1000000;
+        
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        Map<String, Long> ops = new TreeMap<>();
+        statistics = GlobalStorageStatistics.INSTANCE.get(DFSOpsCountStatistics.NAME);
+        if (statistics != null) {
+            for (Iterator<StorageStatistics.LongStatistic> it = statistics.getLongStatistics(); it.hasNext(); ) {
+                StorageStatistics.LongStatistic statistic = it.next();
+                if (statistic.getValue() > 0) {
+                    ops.put(statistic.getName(), statistic.getValue());
+                }
+            }
+        }
+        return new RunStats(result, wallMs, ops, Math.max(0, peak - baseline));
+    }
+    
+    private static int intOption(CommandLine cmd, String name, int defaultValue) {
+        return Integer.parseInt(cmd.getOptionValue(name, String.valueOf(defaultValue)));
+    }
+    
+    private static Options options() {
+        Options options = new Options();
+        options.addOption(Option.builder().longOpt("format").hasArg()
+                .desc("orc, parquet or textfile (default: orc)").build());
+        options.addOption(Option.builder().longOpt("threads").hasArg()
+                .desc("Comma-separated --threads values to compare (default: 1,4,16,64)").build());
+        options.addOption(Option.builder().longOpt("runs").hasArg()
+                .desc("Measured runs per thread count, after one warm-up run (default: 3)").build());
+        options.addOption(Option.builder().longOpt("provinces").hasArg()
+                .desc("prov_id partitions per hour (default: 31)").build());
+        options.addOption(Option.builder().longOpt("hours").hasArg()
+                .desc("statis_ymdh partitions (default: 24)").build());
+        options.addOption(Option.builder().longOpt("files-per-partition").hasArg()
+                .desc("Small files in each partition (default: 4)").build());
+        options.addOption(Option.builder().longOpt("small-rows").hasArg()
+                .desc("Rows per small file (default: 1000)").build());
+        options.addOption(Option.builder().longOpt("huge-files").hasArg()
+                .desc("Huge files added to the first partitions (default: 3)").build());
+        options.addOption(Option.builder().longOpt("huge-rows").hasArg()
+                .desc("Rows per huge file (default: 2000000)").build());
+        options.addOption(Option.builder().longOpt("datanodes").hasArg()
+                .desc("DataNodes in the mini cluster (default: 1)").build());
+        options.addOption(Option.builder().longOpt("counter-args").hasArg()
+                .desc("Extra hdfs-counter arguments for every run, e.g. \"--schedule lpt\"").build());
+        options.addOption(Option.builder().longOpt("csv").hasArg()
+                .desc("Also write one CSV line per measured run to this file").build());
+        options.addOption(Option.builder("h").longOpt("help").desc("Show help").build());
+        return options;
+    }
+    
+    private static final class RunStats {
+        private final CountResult result;
+        private final long wallMs;
+        private final Map<String, Long> ops;
+        private final long peakHeapBytes;
+        
+        RunStats(CountResult result, long wallMs, Map<String, Long> ops, long peakHeapBytes) {
+            this.result = result;
+            this.wallMs = wallMs;
+            this.ops = ops;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+        
+        long ops(String name) {
+            Long value = ops.get(name);
+            return value == null ? 0 : value;
+        }
+        
+        long totalOps() {
+            long total = 0;
+            for (long value : ops.values()) {
+                total += value;
+            }
+            return total;
+        }
+    }
+}
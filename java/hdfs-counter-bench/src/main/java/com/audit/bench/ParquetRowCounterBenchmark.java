@@ -0,0 +1,60 @@
+package com.audit.bench;
+
+import com.audit.counter.ParquetRowCounter;
+import com.audit.counter.RowCounter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files per second and per-file latency of {@link ParquetRowCounter}: one tail read and a
+ * footer parse per file, so only the footer size (columns, row groups) should matter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParquetRowCounterBenchmark {
+    
+    @Param({"10000", "1000000"})
+    public int rows;
+    
+    @Param({"8", "64"})
+    public int columns;
+    
+    @Param({"UNCOMPRESSED", "SNAPPY", "ZSTD"})
+    public String codec;
+    
+    private RowCounter counter;
+    private FileStatus status;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Configuration conf = new Configuration();
+        Path path = BenchData.parquet(conf, rows, columns, codec);
+        status = path.getFileSystem(conf).getFileStatus(path);
+        counter = new ParquetRowCounter(conf);
+        BenchData.checkCount(counter.countRows(status), rows, path);
+    }
+    
+    @Benchmark
+    public long countRows() throws IOException {
+        return counter.countRows(status);
+    }
+}
@@ -0,0 +1,75 @@
+package com.audit.bench;
+
+import com.audit.counter.CounterOptions;
+import com.audit.counter.RowCounter;
+import com.audit.counter.TextFileRowCounter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files per second and per-file latency of {@link TextFileRowCounter}, counting one file
+ * on a single thread (no split executor). Local uncompressed files with a single-byte
+ * delimiter take the memory-mapped path; compressed files and multi-byte delimiters read
+ * through the stream path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextFileRowCounterBenchmark {
+    
+    @Param({"500000"})
+    public int rows;
+    
+    @Param({"8", "32"})
+    public int columns;
+    
+    /** Line delimiter: lf or crlf */
+    @Param({"lf", "crlf"})
+    public String delimiter;
+    
+    /** Hadoop codec name or none */
+    @Param({"none", "gzip"})
+    public String codec;
+    
+    /** Single-byte delimiter scanner, see {@link CounterOptions#SCANNERS} */
+    @Param({"auto", "scalar"})
+    public String scanner;
+    
+    private RowCounter counter;
+    private FileStatus status;
+    
+    @Setup
+    public void setUp() throws IOException {
+        String separator = "crlf".equalsIgnoreCase(delimiter) ? "\r\n" : "\n";
+        Configuration conf = new Configuration();
+        Path path = BenchData.text(conf, rows, columns, separator, codec);
+        status = path.getFileSystem(conf).getFileStatus(path);
+        CounterOptions options = new CounterOptions();
+        options.setScanner(scanner);
+        counter = new TextFileRowCounter(conf, separator, options);
+        BenchData.checkCount(counter.countRows(status), rows, path);
+    }
+    
+    @Benchmark
+    public long countRows() throws IOException {
+        return counter.countRows(status);
+    }
+}
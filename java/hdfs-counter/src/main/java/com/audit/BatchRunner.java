@@ -0,0 +1,116 @@
+package com.audit;
+
+import com.audit.engine.CountEngine;
+import com.audit.model.CountRequest;
+import com.audit.model.CountResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Batch mode (--manifest).
+ * Reads a manifest of JSON lines (job_id, path, format, delimiter), counts all entries
+ * with one shared counting pool and writes one {@link CountResult} line per entry as
+ * soon as it completes.
+ */
+public class BatchRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchRunner.class);
+    
+    private final CountEngine engine;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    
+    /**
+     * @param engine shared counting engine
+     * @param objectMapper JSON mapper
+     * @param parallelism number of manifest entries listed/aggregated at the same time;
+     *                    files of all in-progress entries share the engine's pool
+     */
+    public BatchRunner(CountEngine engine, ObjectMapper objectMapper, int parallelism) {
+        this.engine = engine;
+        this.objectMapper = objectMapper;
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Run all manifest entries
+     *
+     * @return exit code: 0 all success, 1 all failed, 2 otherwise
+     */
+    public int run(InputStream manifest, PrintStream out) throws IOException {
+        JsonLineWriter writer = new JsonLineWriter(objectMapper, out);
+        List<CountRequest> requests = new ArrayList<>();
+        int invalid = 0;
+        int success = 0;
+        int failed = 0;
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(manifest, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                requests.add(objectMapper.readValue(line, CountRequest.class));
+            } catch (IOException e) {
+                LOG.error("Invalid manifest entry: {}", line);
+                writer.write(CounterServer.invalidRequestResult(objectMapper, line, e));
+                invalid++;
+            }
+        }
+        
+        LOG.info("Batch mode: {} manifest entries, parallelism: {}", requests.size(), parallelism);
+        
+        ExecutorService coordinators = Executors.newFixedThreadPool(parallelism);
+        try {
+            CompletionService<CountResult> completion = new ExecutorCompletionService<>(coordinators);
+            for (CountRequest request : requests) {
+                completion.submit(() -> CounterServer.countOrFail(engine, request));
+            }
+            
+            for (int i = 0; i < requests.size(); i++) {
+                CountResult result;
+                try {
+                    result = completion.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for batch results", e);
+                } catch (ExecutionException e) {
+                    // countOrFail() never throws, so this is unexpected
+                    throw new IOException("Error getting batch result", e.getCause());
+                }
+                writer.write(result);
+                if ("success".equals(result.getStatus())) {
+                    success++;
+                } else if ("failed".equals(result.getStatus())) {
+                    failed++;
+                }
+            }
+        } finally {
+            coordinators.shutdownNow();
+        }
+        
+        failed += invalid;
+        int total = requests.size() + invalid;
+        LOG.info("Batch mode finished: {} success, {} failed, {} total", success, failed, total);
+        if (success == total) {
+            return 0;
+        }
+        return failed == total ? 1 : 2;
+    }
+}
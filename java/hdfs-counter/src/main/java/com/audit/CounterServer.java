@@ -0,0 +1,211 @@
+package com.audit;
+
+import com.audit.engine.CountEngine;
+import com.audit.model.CountRequest;
+import com.audit.model.CountResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Line protocol for serve mode (--serve).
+ * Each input line is a JSON {@link CountRequest}, each output line is the matching
+ * {@link CountResult} on a single line, tagged with the request's job_id.
+ * Up to maxConcurrent requests run concurrently on the shared engine, so responses may
+ * arrive out of order; up to {@link #MAX_QUEUED_REQUESTS} more wait for a request thread
+ * and any beyond that are answered at once with a failed "Server busy" result.
+ * A line {"job_id": ..., "cancel": true} stops that request; it is still answered once.
+ * The server stops once stdin is closed and all in-flight requests have been answered.
+ */
+public class CounterServer {
+    private static final Logger LOG = LoggerFactory.getLogger(CounterServer.class);
+    
+    /** Requests waiting for a free request thread; further requests are answered as busy */
+    private static final int MAX_QUEUED_REQUESTS = 1000;
+    
+    private final CountEngine engine;
+    private final ObjectMapper objectMapper;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final ThreadPoolExecutor dispatcher;
+    /** Queued and running requests by job_id, for cancellation */
+    private final Map<String, Dispatched> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * @param maxConcurrent number of requests listed/aggregated at the same time, like
+     *                      BatchRunner's parallelism; later requests wait in a bounded queue
+     */
+    public CounterServer(CountEngine engine, ObjectMapper objectMapper, int maxConcurrent) {
+        this(engine, objectMapper, maxConcurrent, MAX_QUEUED_REQUESTS);
+    }
+    
+    CounterServer(CountEngine engine, ObjectMapper objectMapper, int maxConcurrent, int maxQueued) {
+        this.engine = engine;
+        this.objectMapper = objectMapper;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(1, maxQueued);
+        // Request threads only list and aggregate; the files themselves run on the engine's pool
+        this.dispatcher = new ThreadPoolExecutor(this.maxConcurrent, this.maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.maxQueued));
+    }
+    
+    public void serve(InputStream in, PrintStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        JsonLineWriter writer = new JsonLineWriter(objectMapper, out);
+        LOG.info("Serve mode ready, waiting for requests on stdin");
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            
+            CountRequest request;
+            try {
+                request = parseRequest(line);
+            } catch (IOException e) {
+                LOG.error("Invalid request: {}", line);
+                writer.write(invalidRequestResult(objectMapper, line, e));
+                continue;
+            }
+            
+            if (request.isCancel()) {
+                cancel(request, writer);
+            } else {
+                dispatch(request, writer);
+            }
+        }
+        
+        LOG.info("stdin closed, waiting for in-flight requests");
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            dispatcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void dispatch(CountRequest request, JsonLineWriter writer) {
+        String jobId = request.getJobId();
+        Dispatched dispatched = new Dispatched();
+        if (jobId != null) {
+            inFlight.put(jobId, dispatched);
+        }
+        try {
+            dispatched.future = dispatcher.submit(() -> {
+                // A cancel that claimed the request first has already answered it
+                if (!dispatched.claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    writer.write(countOrFail(engine, request));
+                } finally {
+                    if (jobId != null) {
+                        inFlight.remove(jobId, dispatched);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (jobId != null) {
+                inFlight.remove(jobId, dispatched);
+            }
+            LOG.warn("Rejecting request {}: {} running, {} queued", jobId, maxConcurrent, maxQueued);
+            writer.write(failedResult(request,
+                    "Server busy: " + maxConcurrent + " requests running and " + maxQueued + " queued, retry later"));
+        }
+    }
+    
+    /**
+     * Stop a request the client gave up on. A queued request is dropped and answered here; a
+     * running one is interrupted, stops listing and submitting files, and answers itself
+     * once its files already on the counting pool are done.
+     */
+    private void cancel(CountRequest request, JsonLineWriter writer) {
+        String jobId = request.getJobId();
+        Dispatched dispatched = jobId == null ? null : inFlight.remove(jobId);
+        if (dispatched == null) {
+            LOG.info("Nothing to cancel for job {}", jobId);
+            return;
+        }
+        if (dispatched.claimed.compareAndSet(false, true)) {
+            LOG.info("Cancelled queued job {}", jobId);
+            dispatched.future.cancel(false);
+            dispatcher.remove((Runnable) dispatched.future);
+            writer.write(failedResult(request, "Cancelled before it started"));
+        } else {
+            LOG.info("Cancelling running job {}", jobId);
+            dispatched.future.cancel(true);
+        }
+    }
+    
+    private CountRequest parseRequest(String line) throws IOException {
+        return objectMapper.readValue(line, CountRequest.class);
+    }
+    
+    /**
+     * {@link CountEngine#count} reports failures in its result; anything still thrown is turned
+     * into a failed result carrying the request's job_id, so a client is never left waiting
+     */
+    static CountResult countOrFail(CountEngine engine, CountRequest request) {
+        try {
+            return engine.count(request);
+        } catch (Throwable e) {
+            LOG.error("Error counting request: {}", request.getJobId(), e);
+            return failedResult(request, "Unexpected error: " + e);
+        }
+    }
+    
+    private static CountResult failedResult(CountRequest request, String error) {
+        CountResult result = CountEngine.createFailedResult(request.getPath() == null ? "" : request.getPath(), 0, error);
+        result.setJobId(request.getJobId());
+        return result;
+    }
+    
+    /**
+     * Failed result for an unparseable request line, tagged with its job_id when one can be found
+     */
+    static CountResult invalidRequestResult(ObjectMapper objectMapper, String line, Exception e) {
+        CountResult result = CountEngine.createFailedResult("", 0, "Invalid request: " + e.getMessage());
+        result.setJobId(extractJobId(objectMapper, line));
+        return result;
+    }
+    
+    /**
+     * Best-effort job_id lookup so a malformed request can still be matched by the client
+     */
+    private static String extractJobId(ObjectMapper objectMapper, String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            JsonNode jobId = node.get("job_id");
+            return jobId == null || jobId.isNull() ? null : jobId.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    /**
+     * A dispatched request, claimed exactly once: by its request thread or by a cancel
+     */
+    private static final class Dispatched {
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile Future<?> future;
+    }
+}
@@ -1,15 +1,22 @@
 package com.audit;
 
-import com.audit.counter.CounterFactory;
-import com.audit.counter.RowCounter;
+import com.audit.cache.FooterCache;
+import com.audit.counter.CounterOptions;
+import com.audit.counter.ScanBufferPool;
+import com.audit.engine.ConcurrencyLimiter;
+import com.audit.engine.CountEngine;
+import com.audit.engine.EngineMetrics;
+import com.audit.engine.FileLister;
+import com.audit.engine.FileResultListener;
+import com.audit.engine.LargestFirstExecutor;
+import com.audit.engine.RetryPolicy;
+import com.audit.engine.VirtualThreadExecutor;
+import com.audit.model.CountRequest;
 import com.audit.model.CountResult;
-import com.audit.model.FileError;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.commons.cli.*;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileStatus;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,10 +24,14 @@ import org.slf4j.LoggerFactory;
 import org.apache.hadoop.security.UserGroupInformation;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.*;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * HDFS Row Counter - CLI tool to count rows in HDFS files
@@ -30,8 +41,17 @@ public class HdfsCounter {
     private static final Logger LOG = LoggerFactory.getLogger(HdfsCounter.class);
     
     private static final int DEFAULT_THREADS = 10;
+    private static final int DEFAULT_LIST_THREADS = 8;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 200000;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
     private static final String DEFAULT_DELIMITER = "\n";
     
+    /** Counting pool schedules: listing order, largest file first, work stealing, virtual threads */
+    private static final String[] SCHEDULES = {"fifo", "lpt", "steal", "virtual"};
+    
+    private static final String DOMAIN_SOCKET_PATH_KEY = "dfs.domain.socket.path";
+    private static final String SHORT_CIRCUIT_KEY = "dfs.client.read.shortcircuit";
+    
     private final Configuration conf;
     private final ObjectMapper objectMapper;
     
@@ -89,10 +109,27 @@ public class HdfsCounter {
             LOG.warn("No Hadoop config directory specified. Set HADOOP_CONF_DIR or HADOOP_HOME environment variable, or use --hadoop-conf option.");
         }
         
+        enableShortCircuitReads();
+        
         // Initialize Kerberos authentication if enabled
         initKerberosAuth();
     }
     
+    /**
+     * Read blocks of a colocated DataNode straight from its local files when the cluster
+     * exposes a domain socket, unless hdfs-site.xml sets dfs.client.read.shortcircuit itself
+     */
+    private void enableShortCircuitReads() {
+        if (conf.getTrimmed(DOMAIN_SOCKET_PATH_KEY, "").isEmpty()) {
+            return;
+        }
+        String[] sources = conf.getPropertySources(SHORT_CIRCUIT_KEY);
+        if (sources == null || sources.length == 0 || "hdfs-default.xml".equals(sources[sources.length - 1])) {
+            conf.setBoolean(SHORT_CIRCUIT_KEY, true);
+            LOG.info("Short-circuit local reads enabled via {}", conf.getTrimmed(DOMAIN_SOCKET_PATH_KEY));
+        }
+    }
+    
     /**
      * Initialize Kerberos authentication using current user's ticket cache
      */
@@ -121,22 +158,44 @@ public class HdfsCounter {
     public static void main(String[] args) {
         // Pre-parse to get hadoop-conf before creating HdfsCounter
         String hadoopConfDir = null;
-        for (int i = 0; i < args.length - 1; i++) {
-            if ("--hadoop-conf".equals(args[i]) || "-c".equals(args[i])) {
+        boolean serve = false;
+        boolean batch = false;
+        boolean stream = false;
+        for (int i = 0; i < args.length; i++) {
+            if (("--hadoop-conf".equals(args[i]) || "-c".equals(args[i])) && i < args.length - 1) {
                 hadoopConfDir = args[i + 1];
-                break;
+            } else if ("--serve".equals(args[i]) || "-s".equals(args[i])) {
+                serve = true;
+            } else if ("--manifest".equals(args[i]) || "-m".equals(args[i])) {
+                batch = true;
+            } else if ("--stream".equals(args[i])) {
+                stream = true;
             }
         }
         
         HdfsCounter counter = new HdfsCounter(hadoopConfDir);
-        CountResult result = counter.run(args);
+        if (serve) {
+            System.exit(counter.serve(args));
+        }
+        if (batch) {
+            System.exit(counter.batch(args));
+        }
         
-        try {
-            String json = counter.objectMapper.writeValueAsString(result);
-            System.out.println(json);
-        } catch (Exception e) {
-            System.err.println("{\"status\":\"failed\",\"error\":\"" + e.getMessage() + "\"}");
-            System.exit(1);
+        CountResult result;
+        if (stream) {
+            // Per-file lines as they complete, the result as the last line
+            JsonLineWriter writer = new JsonLineWriter(counter.objectMapper, System.out);
+            result = counter.run(args, writer);
+            writer.writeResult(result);
+        } else {
+            result = counter.run(args);
+            try {
+                String json = counter.objectMapper.writeValueAsString(result);
+                System.out.println(json);
+            } catch (Exception e) {
+                System.err.println("{\"status\":\"failed\",\"error\":\"" + e.getMessage() + "\"}");
+                System.exit(1);
+            }
         }
         
         // Exit code based on status
@@ -148,6 +207,13 @@ public class HdfsCounter {
     }
     
     public CountResult run(String[] args) {
+        return run(args, null);
+    }
+    
+    /**
+     * @param listener receives each file's result as it completes, or null
+     */
+    public CountResult run(String[] args, FileResultListener listener) {
         long startTime = System.currentTimeMillis();
         
         // Parse command line arguments
@@ -155,45 +221,255 @@ public class HdfsCounter {
         try {
             cmd = parseArgs(args);
         } catch (ParseException e) {
-            return createFailedResult("", 0, "Argument parsing failed: " + e.getMessage());
+            return CountEngine.createFailedResult("", 0, "Argument parsing failed: " + e.getMessage());
+        }
+        
+        if (!cmd.hasOption("path") || !cmd.hasOption("format")) {
+            return CountEngine.createFailedResult("", 0,
+                    "Argument parsing failed: Missing required options: p, f");
         }
         
         String path = cmd.getOptionValue("path");
-        String format = cmd.getOptionValue("format").toLowerCase();
+        String format = cmd.getOptionValue("format");
         int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(DEFAULT_THREADS)));
         String delimiter = cmd.getOptionValue("delimiter", DEFAULT_DELIMITER);
         
-        // Handle escaped newline
-        if ("\\n".equals(delimiter)) {
-            delimiter = "\n";
+        ExecutorService executor = newCountingPool(cmd, threads);
+        ExecutorService listingPool = newListingPool(cmd);
+        FooterCache footerCache = openFooterCache(cmd);
+        CounterOptions options = counterOptions(cmd, executor, threads, footerCache);
+        MetricsServer metricsServer = startMetricsServer(cmd, options);
+        try {
+            CountEngine engine = new CountEngine(conf, executor, new FileLister(listingPool), options);
+            CountResult result = engine.count(new CountRequest(null, path, format, delimiter), listener);
+            // Report wall time of the whole invocation, including argument parsing
+            result.setDurationMs(System.currentTimeMillis() - startTime);
+            return result;
+        } finally {
+            stopMetricsServer(metricsServer);
+            shutdown(listingPool);
+            shutdown(executor);
+            saveFooterCache(footerCache);
+        }
+    }
+    
+    /**
+     * Serve mode: keep one JVM, one FileSystem and one thread pool warm and answer
+     * JSON-line requests from stdin until it is closed.
+     *
+     * @return process exit code
+     */
+    public int serve(String[] args) {
+        CommandLine cmd;
+        try {
+            cmd = parseArgs(args);
+        } catch (ParseException e) {
+            LOG.error("Argument parsing failed: {}", e.getMessage());
+            return 1;
         }
         
-        LOG.info("Starting row count for path: {}, format: {}, threads: {}", path, format, threads);
+        int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(DEFAULT_THREADS)));
+        LOG.info("Starting serve mode, threads: {}", threads);
         
-        // Validate format
-        if (!isValidFormat(format)) {
-            return createFailedResult(path, System.currentTimeMillis() - startTime,
-                    "Invalid format: " + format + ". Supported formats: orc, parquet, textfile");
+        ExecutorService executor = newCountingPool(cmd, threads);
+        ExecutorService listingPool = newListingPool(cmd);
+        FooterCache footerCache = openFooterCache(cmd);
+        CounterOptions options = counterOptions(cmd, executor, threads, footerCache);
+        MetricsServer metricsServer = startMetricsServer(cmd, options);
+        try {
+            CountEngine engine = new CountEngine(conf, executor, new FileLister(listingPool), options);
+            new CounterServer(engine, objectMapper, threads).serve(System.in, System.out);
+            return 0;
+        } catch (IOException e) {
+            LOG.error("Serve mode failed", e);
+            return 1;
+        } finally {
+            stopMetricsServer(metricsServer);
+            shutdown(listingPool);
+            shutdown(executor);
+            saveFooterCache(footerCache);
+        }
+    }
+    
+    /**
+     * Batch mode: count every entry of a JSON-lines manifest on one shared thread pool
+     * and stream one result line per entry.
+     *
+     * @return process exit code (0 all success, 1 all failed, 2 otherwise)
+     */
+    public int batch(String[] args) {
+        CommandLine cmd;
+        try {
+            cmd = parseArgs(args);
+        } catch (ParseException e) {
+            LOG.error("Argument parsing failed: {}", e.getMessage());
+            return 1;
         }
         
-        // Get file system and list files
-        List<FileStatus> files;
-        FileSystem fs;
+        String manifest = cmd.getOptionValue("manifest");
+        int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(DEFAULT_THREADS)));
+        LOG.info("Starting batch mode, manifest: {}, threads: {}", manifest, threads);
+        
+        ExecutorService executor = newCountingPool(cmd, threads);
+        ExecutorService listingPool = newListingPool(cmd);
+        FooterCache footerCache = openFooterCache(cmd);
+        CounterOptions options = counterOptions(cmd, executor, threads, footerCache);
+        MetricsServer metricsServer = startMetricsServer(cmd, options);
+        try (InputStream in = "-".equals(manifest) ? System.in : new FileInputStream(manifest)) {
+            CountEngine engine = new CountEngine(conf, executor, new FileLister(listingPool), options);
+            return new BatchRunner(engine, objectMapper, threads).run(in, System.out);
+        } catch (IOException e) {
+            LOG.error("Batch mode failed", e);
+            return 1;
+        } finally {
+            stopMetricsServer(metricsServer);
+            shutdown(listingPool);
+            shutdown(executor);
+            saveFooterCache(footerCache);
+        }
+    }
+    
+    /**
+     * Counting pool for --schedule: fifo (default) runs files in listing order, lpt runs
+     * the largest queued file first, steal uses a work-stealing ForkJoinPool in which split
+     * helpers queue on the forking thread and are stolen by idle workers, virtual runs each
+     * file on a virtual thread with at most --max-in-flight running (Java 21+, otherwise fifo)
+     */
+    private ExecutorService newCountingPool(CommandLine cmd, int threads) {
+        String schedule = cmd.getOptionValue("schedule", SCHEDULES[0]).toLowerCase();
+        switch (schedule) {
+            case "lpt":
+                return new LargestFirstExecutor(threads);
+            case "steal":
+                return new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            case "virtual": {
+                int maxInFlight = Integer.parseInt(cmd.getOptionValue("max-in-flight",
+                        String.valueOf(DEFAULT_MAX_IN_FLIGHT)));
+                ExecutorService pool = VirtualThreadExecutor.create(maxInFlight);
+                if (pool != null) {
+                    LOG.info("Counting on virtual threads, max in flight: {}", maxInFlight);
+                    return pool;
+                }
+                LOG.warn("Virtual threads need Java 21+ (running {}), using a fixed pool of {} threads",
+                        System.getProperty("java.version"), threads);
+                return Executors.newFixedThreadPool(threads);
+            }
+            default:
+                return Executors.newFixedThreadPool(threads);
+        }
+    }
+    
+    /**
+     * Bounded pool used to list subdirectories in parallel
+     */
+    private ExecutorService newListingPool(CommandLine cmd) {
+        int listThreads = Integer.parseInt(cmd.getOptionValue("list-threads", String.valueOf(DEFAULT_LIST_THREADS)));
+        return Executors.newFixedThreadPool(Math.max(1, listThreads));
+    }
+    
+    /**
+     * Footer cache from --cache-dir, or null when caching is disabled
+     */
+    private FooterCache openFooterCache(CommandLine cmd) {
+        if (!cmd.hasOption("cache-dir")) {
+            return null;
+        }
+        int maxEntries = Integer.parseInt(cmd.getOptionValue("cache-max-entries",
+                String.valueOf(DEFAULT_CACHE_MAX_ENTRIES)));
+        return FooterCache.open(new File(cmd.getOptionValue("cache-dir")), maxEntries);
+    }
+    
+    /**
+     * Counter settings shared by all requests; large text files are split across the counting pool
+     */
+    private CounterOptions counterOptions(CommandLine cmd, ExecutorService executor, int threads,
+                                          FooterCache footerCache) {
+        CounterOptions options = new CounterOptions();
+        options.setFooterCache(footerCache);
+        options.setSplitExecutor(executor);
+        options.setSplitParallelism(threads);
+        if (cmd.hasOption("split-size-mb")) {
+            options.setSplitSize(Long.parseLong(cmd.getOptionValue("split-size-mb")) * 1024 * 1024);
+        }
+        options.setScanner(cmd.getOptionValue("scanner", options.getScanner()));
+        options.setMetadataReport(cmd.hasOption("metadata-report"));
+        if (cmd.hasOption("scan-buffer-mb")) {
+            options.setBufferPool(new ScanBufferPool(Long.parseLong(cmd.getOptionValue("scan-buffer-mb")) * 1024 * 1024));
+        }
+        if (cmd.hasOption("adaptive")) {
+            // Never more than the pool can run at once, start at a quarter and probe upwards
+            int max = executor instanceof VirtualThreadExecutor
+                    ? Integer.parseInt(cmd.getOptionValue("max-in-flight", String.valueOf(DEFAULT_MAX_IN_FLIGHT)))
+                    : threads;
+            options.setConcurrencyLimiter(new ConcurrencyLimiter(Math.max(1, max / 4), 1, max));
+            LOG.info("Adaptive concurrency enabled, limit up to {}", max);
+        }
+        if (cmd.hasOption("max-retries") || cmd.hasOption("retry-backoff-ms")) {
+            options.setRetryPolicy(new RetryPolicy(
+                    Integer.parseInt(cmd.getOptionValue("max-retries", String.valueOf(RetryPolicy.DEFAULT_MAX_RETRIES))),
+                    Long.parseLong(cmd.getOptionValue("retry-backoff-ms", String.valueOf(RetryPolicy.DEFAULT_BASE_DELAY_MS)))));
+        }
+        if (cmd.hasOption("metrics-port")) {
+            EngineMetrics metrics = new EngineMetrics();
+            metrics.registerExecutor(executor);
+            ScanBufferPool bufferPool = options.getBufferPool();
+            metrics.registerGauge("scan_buffer_bytes", "Memory held by text read buffers", bufferPool::getAllocatedBytes);
+            ConcurrencyLimiter limiter = options.getConcurrencyLimiter();
+            if (limiter != null) {
+                metrics.registerGauge("concurrency_limit", "Files allowed to be counted at once (--adaptive)",
+                        limiter::getLimit);
+            }
+            options.setMetrics(metrics);
+        }
+        return options;
+    }
+    
+    /**
+     * Metrics endpoint for --metrics-port, or null when disabled or the port is taken;
+     * counting goes ahead either way
+     */
+    private MetricsServer startMetricsServer(CommandLine cmd, CounterOptions options) {
+        if (options.getMetrics() == null) {
+            return null;
+        }
         try {
-            Path hdfsPath = new Path(path);
-            fs = hdfsPath.getFileSystem(conf);
-            files = listFiles(fs, hdfsPath);
+            return MetricsServer.start(Integer.parseInt(cmd.getOptionValue("metrics-port")), options.getMetrics());
         } catch (IOException e) {
-            return createFailedResult(path, System.currentTimeMillis() - startTime,
-                    "Failed to access path: " + e.getMessage());
+            LOG.warn("Failed to start metrics endpoint on port {}: {}", cmd.getOptionValue("metrics-port"),
+                    e.getMessage());
+            return null;
         }
-        
-        if (files.isEmpty()) {
-            return createSuccessResult(path, 0, 0, 0, System.currentTimeMillis() - startTime);
+    }
+    
+    private void stopMetricsServer(MetricsServer metricsServer) {
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+    }
+    
+    private void saveFooterCache(FooterCache footerCache) {
+        if (footerCache == null) {
+            return;
+        }
+        try {
+            footerCache.save();
+        } catch (IOException e) {
+            // The cache is an optimization; counting results are unaffected
+            LOG.warn("Failed to save footer cache: {}", e.getMessage());
+        }
+    }
+    
+    private void shutdown(ExecutorService executor) {
+        // Shutdown executor and wait for termination
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-        
-        // Count rows using thread pool
-        return countRows(path, files, format, delimiter, threads, startTime);
     }
     
     private CommandLine parseArgs(String[] args) throws ParseException {
@@ -202,14 +478,12 @@ public class HdfsCounter {
         Option pathOpt = Option.builder("p")
                 .longOpt("path")
                 .hasArg()
-                .required()
                 .desc("HDFS directory path to count")
                 .build();
         
         Option formatOpt = Option.builder("f")
                 .longOpt("format")
                 .hasArg()
-                .required()
                 .desc("File format: orc, parquet, textfile")
                 .build();
         
@@ -219,6 +493,12 @@ public class HdfsCounter {
                 .desc("Number of threads (default: " + DEFAULT_THREADS + ")")
                 .build();
         
+        Option listThreadsOpt = Option.builder("l")
+                .longOpt("list-threads")
+                .hasArg()
+                .desc("Number of threads listing subdirectories in parallel (default: " + DEFAULT_LIST_THREADS + ")")
+                .build();
+        
         Option delimiterOpt = Option.builder("d")
                 .longOpt("delimiter")
                 .hasArg()
@@ -231,6 +511,100 @@ public class HdfsCounter {
                 .desc("Hadoop configuration directory (default: $HADOOP_CONF_DIR or $HADOOP_HOME/etc/hadoop)")
                 .build();
         
+        Option serveOpt = Option.builder("s")
+                .longOpt("serve")
+                .desc("Serve mode: read JSON-line requests from stdin, write JSON-line results to stdout")
+                .build();
+        
+        Option manifestOpt = Option.builder("m")
+                .longOpt("manifest")
+                .hasArg()
+                .desc("Batch mode: JSON-lines manifest of {job_id, path, format, delimiter} (- for stdin)")
+                .build();
+        
+        Option splitSizeOpt = Option.builder()
+                .longOpt("split-size-mb")
+                .hasArg()
+                .desc("Count text files larger than this in parallel block-aligned splits, 0 to disable (default: "
+                        + CounterOptions.DEFAULT_SPLIT_SIZE / 1024 / 1024 + ")")
+                .build();
+        
+        Option scannerOpt = Option.builder()
+                .longOpt("scanner")
+                .hasArg()
+                .desc("Single-byte delimiter scanner: auto, swar (8 bytes per step) or scalar (default: auto)")
+                .build();
+        
+        Option scanBufferOpt = Option.builder()
+                .longOpt("scan-buffer-mb")
+                .hasArg()
+                .desc("Cap on memory held by text read buffers across all threads (default: "
+                        + ScanBufferPool.DEFAULT_MAX_MEMORY / 1024 / 1024 + ")")
+                .build();
+        
+        Option metadataReportOpt = Option.builder()
+                .longOpt("metadata-report")
+                .desc("Add per-file rows, row groups/stripes and compressed/uncompressed sizes to the result")
+                .build();
+        
+        Option streamOpt = Option.builder()
+                .longOpt("stream")
+                .desc("Write one JSON line per file as it completes, then the result as the last line")
+                .build();
+        
+        Option scheduleOpt = Option.builder()
+                .longOpt("schedule")
+                .hasArg()
+                .desc("Counting pool: fifo (listing order), lpt (largest file first), steal (work-stealing pool) "
+                        + "or virtual (virtual threads, Java 21+) (default: fifo)")
+                .build();
+        
+        Option maxInFlightOpt = Option.builder()
+                .longOpt("max-in-flight")
+                .hasArg()
+                .desc("Files counted at once with --schedule virtual (default: " + DEFAULT_MAX_IN_FLIGHT + ")")
+                .build();
+        
+        Option adaptiveOpt = Option.builder()
+                .longOpt("adaptive")
+                .desc("Adjust the number of files counted at once (AIMD) from per-file latency and "
+                        + "RetriableException/StandbyException rates, up to the pool size")
+                .build();
+        
+        Option maxRetriesOpt = Option.builder()
+                .longOpt("max-retries")
+                .hasArg()
+                .desc("Retries of a file failing with a transient error (failover, missing block, timeout); "
+                        + "unknown errors are retried once, corrupt/permission/not-found never, 0 to disable (default: "
+                        + RetryPolicy.DEFAULT_MAX_RETRIES + ")")
+                .build();
+        
+        Option retryBackoffOpt = Option.builder()
+                .longOpt("retry-backoff-ms")
+                .hasArg()
+                .desc("Delay before the first retry, doubling with each further one (default: "
+                        + RetryPolicy.DEFAULT_BASE_DELAY_MS + ")")
+                .build();
+        
+        Option metricsPortOpt = Option.builder()
+                .longOpt("metrics-port")
+                .hasArg()
+                .desc("Serve Prometheus/OpenMetrics metrics on http://<host>:<port>/metrics (default: disabled)")
+                .build();
+        
+        Option cacheDirOpt = Option.builder()
+                .longOpt("cache-dir")
+                .hasArg()
+                .desc("Directory of the persistent ORC/Parquet footer row count cache (default: disabled)")
+                .build();
+        
+        Option cacheMaxEntriesOpt = Option.builder()
+                .longOpt("cache-max-entries")
+                .hasArg()
+                .desc("Maximum footer cache entries, least recently used are evicted (default: "
+                        + DEFAULT_CACHE_MAX_ENTRIES + ")")
+                .build();
+        
         Option helpOpt = Option.builder("h")
                 .longOpt("help")
                 .desc("Print help message")
@@ -239,8 +613,24 @@ public class HdfsCounter {
         options.addOption(pathOpt);
         options.addOption(formatOpt);
         options.addOption(threadsOpt);
+        options.addOption(listThreadsOpt);
         options.addOption(delimiterOpt);
         options.addOption(hadoopConfOpt);
+        options.addOption(serveOpt);
+        options.addOption(manifestOpt);
+        options.addOption(splitSizeOpt);
+        options.addOption(scannerOpt);
+        options.addOption(scanBufferOpt);
+        options.addOption(metadataReportOpt);
+        options.addOption(streamOpt);
+        options.addOption(scheduleOpt);
+        options.addOption(maxInFlightOpt);
+        options.addOption(adaptiveOpt);
+        options.addOption(maxRetriesOpt);
+        options.addOption(retryBackoffOpt);
+        options.addOption(metricsPortOpt);
+        options.addOption(cacheDirOpt);
+        options.addOption(cacheMaxEntriesOpt);
         options.addOption(helpOpt);
         
         CommandLineParser parser = new DefaultParser();
@@ -253,183 +643,20 @@ public class HdfsCounter {
             }
         }
         
-        return parser.parse(options, args);
+        CommandLine cmd = parser.parse(options, args);
+        String scanner = cmd.getOptionValue("scanner");
+        if (scanner != null && !CounterOptions.isValidScanner(scanner)) {
+            throw new ParseException("Invalid scanner: " + scanner + " (expected auto, swar or scalar)");
+        }
+        String schedule = cmd.getOptionValue("schedule");
+        if (schedule != null && !Arrays.asList(SCHEDULES).contains(schedule.toLowerCase())) {
+            throw new ParseException("Invalid schedule: " + schedule + " (expected fifo, lpt, steal or virtual)");
+        }
+        return cmd;
     }
     
     private void printHelp(Options options) {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("hdfs-counter", options);
     }
-    
-    private boolean isValidFormat(String format) {
-        return "orc".equals(format) || "parquet".equals(format) || "textfile".equals(format);
-    }
-    
-    /**
-     * Recursively list all files under the given path
-     */
-    private List<FileStatus> listFiles(FileSystem fs, Path path) throws IOException {
-        List<FileStatus> result = new ArrayList<>();
-        
-        if (!fs.exists(path)) {
-            throw new IOException("Path does not exist: " + path);
-        }
-        
-        FileStatus status = fs.getFileStatus(path);
-        if (status.isFile()) {
-            // Skip hidden files and success markers
-            String name = path.getName();
-            if (!name.startsWith("_") && !name.startsWith(".")) {
-                result.add(status);
-            }
-        } else {
-            // Directory - recursively list
-            FileStatus[] children = fs.listStatus(path);
-            for (FileStatus child : children) {
-                String childName = child.getPath().getName();
-                // Skip hidden directories (e.g., .hive-staging) and hidden files
-                if (childName.startsWith("_") || childName.startsWith(".")) {
-                    continue;
-                }
-                if (child.isDirectory()) {
-                    result.addAll(listFiles(fs, child.getPath()));
-                } else {
-                    // File already passed the hidden/staging filter above
-                    result.add(child);
-                }
-            }
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Count rows in files using multiple threads
-     */
-    private CountResult countRows(String basePath, List<FileStatus> files, String format,
-                                  String delimiter, int threads, long startTime) {
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-        List<Future<FileCountResult>> futures = new ArrayList<>();
-        
-        RowCounter counter = CounterFactory.createCounter(format, conf, delimiter);
-        
-        // Submit tasks
-        for (FileStatus file : files) {
-            futures.add(executor.submit(() -> {
-                try {
-                    long count = counter.countRows(file.getPath());
-                    return new FileCountResult(file.getPath().toString(), count, file.getLen(), null);
-                } catch (Exception e) {
-                    LOG.error("Error counting file: {}", file.getPath(), e);
-                    return new FileCountResult(file.getPath().toString(), 0, file.getLen(), e.getMessage());
-                }
-            }));
-        }
-        
-        // Collect results
-        long totalRows = 0;
-        long totalSize = 0;
-        List<FileError> errors = new ArrayList<>();
-        int successCount = 0;
-        
-        for (Future<FileCountResult> future : futures) {
-            try {
-                FileCountResult fcr = future.get();
-                if (fcr.error == null) {
-                    totalRows += fcr.rowCount;
-                    totalSize += fcr.fileSize;
-                    successCount++;
-                } else {
-                    errors.add(new FileError(fcr.filePath, fcr.error));
-                }
-            } catch (Exception e) {
-                LOG.error("Error getting future result", e);
-                errors.add(new FileError("unknown", e.getMessage()));
-            }
-        }
-        
-        // Shutdown executor and wait for termination
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
-        
-        long duration = System.currentTimeMillis() - startTime;
-        
-        // Determine status
-        String status;
-        if (errors.isEmpty()) {
-            status = "success";
-        } else if (successCount > 0) {
-            status = "partial";
-        } else {
-            status = "failed";
-        }
-        
-        CountResult result = new CountResult();
-        result.setPath(basePath);
-        result.setRowCount(totalRows);
-        result.setFileCount(files.size());
-        result.setSuccessFileCount(successCount);
-        result.setTotalSizeBytes(totalSize);
-        result.setStatus(status);
-        result.setDurationMs(duration);
-        result.setErrors(errors);
-        
-        return result;
-    }
-    
-    private CountResult createFailedResult(String path, long duration, String error) {
-        CountResult result = new CountResult();
-        result.setPath(path);
-        result.setRowCount(-1);
-        result.setFileCount(0);
-        result.setSuccessFileCount(0);
-        result.setTotalSizeBytes(0);
-        result.setStatus("failed");
-        result.setDurationMs(duration);
-        
-        List<FileError> errors = new ArrayList<>();
-        errors.add(new FileError("", error));
-        result.setErrors(errors);
-        
-        return result;
-    }
-    
-    private CountResult createSuccessResult(String path, long rowCount, int fileCount,
-                                            long totalSize, long duration) {
-        CountResult result = new CountResult();
-        result.setPath(path);
-        result.setRowCount(rowCount);
-        result.setFileCount(fileCount);
-        result.setSuccessFileCount(fileCount);
-        result.setTotalSizeBytes(totalSize);
-        result.setStatus("success");
-        result.setDurationMs(duration);
-        result.setErrors(new ArrayList<>());
-        return result;
-    }
-    
-    /**
-     * Internal class to hold file count result
-     */
-    private static class FileCountResult {
-        final String filePath;
-        final long rowCount;
-        final long fileSize;
-        final String error;
-        
-        FileCountResult(String filePath, long rowCount, long fileSize, String error) {
-            this.filePath = filePath;
-            this.rowCount = rowCount;
-            this.fileSize = fileSize;
-            this.error = error;
-        }
-    }
 }
-
@@ -0,0 +1,83 @@
+package com.audit;
+
+import com.audit.engine.CountEngine;
+import com.audit.engine.FileResultListener;
+import com.audit.model.CountResult;
+import com.audit.model.FileError;
+import com.audit.model.FileMetadata;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+
+/**
+ * Thread-safe writer of one-line JSON results, shared by serve and batch modes.
+ * In stream mode it also writes one typed line per counted file ("file" or "error")
+ * followed by the final "result" line.
+ */
+class JsonLineWriter implements FileResultListener {
+    private static final Logger LOG = LoggerFactory.getLogger(JsonLineWriter.class);
+    
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final PrintStream out;
+    
+    JsonLineWriter(ObjectMapper objectMapper, PrintStream out) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.out = out;
+    }
+    
+    @Override
+    public void onFile(FileMetadata file) {
+        writeTyped("file", file);
+    }
+    
+    @Override
+    public void onError(FileError error) {
+        writeTyped("error", error);
+    }
+    
+    /**
+     * Final line of stream mode: the aggregate result tagged with type "result"
+     */
+    void writeResult(CountResult result) {
+        writeTyped("result", result);
+    }
+    
+    void write(CountResult result) {
+        String json;
+        try {
+            json = writer.writeValueAsString(result);
+        } catch (Exception e) {
+            LOG.error("Failed to serialize result for {}", result.getPath(), e);
+            CountResult failed = CountEngine.createFailedResult(result.getPath(), result.getDurationMs(),
+                    "Failed to serialize result: " + e.getMessage());
+            failed.setJobId(result.getJobId());
+            write(failed);
+            return;
+        }
+        println(json);
+    }
+    
+    private void writeTyped(String type, Object value) {
+        ObjectNode node = objectMapper.createObjectNode().put("type", type);
+        try {
+            node.setAll((ObjectNode) objectMapper.valueToTree(value));
+            println(writer.writeValueAsString(node));
+        } catch (Exception e) {
+            LOG.error("Failed to serialize {} line", type, e);
+        }
+    }
+    
+    private void println(String json) {
+        synchronized (out) {
+            out.println(json);
+            out.flush();
+        }
+    }
+}
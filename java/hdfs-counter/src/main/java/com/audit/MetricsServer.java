@@ -0,0 +1,72 @@
+package com.audit;
+
+import com.audit.engine.EngineMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prometheus scrape endpoint (--metrics-port): GET /metrics returns the engine's
+ * {@link EngineMetrics} in the OpenMetrics text format. Runs on the JDK's built-in HTTP
+ * server with a single thread, so it adds no dependency and scrapes never compete with
+ * the counting pool.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsServer.class);
+    
+    private final HttpServer server;
+    
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+    
+    /**
+     * @param port TCP port to listen on, on all interfaces; 0 picks a free port
+     */
+    public static MetricsServer start(int port, EngineMetrics metrics) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> handle(exchange, metrics));
+        server.start();
+        LOG.info("Serving metrics on http://0.0.0.0:{}/metrics", server.getAddress().getPort());
+        return new MetricsServer(server);
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private static void handle(HttpExchange exchange, EngineMetrics metrics) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", EngineMetrics.CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to render metrics", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,214 @@
+package com.audit.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent row count cache for ORC/Parquet footers.
+ * Entries map (path, length, modification time) to a row count: the path is stored as a
+ * 64-bit hash and a hit also requires the length and modification time to match, so a
+ * rewritten file is always read again. The least recently used entries are evicted once
+ * maxEntries is reached.
+ *
+ * The cache file is a flat array of 32-byte records. Saving merges with the file on disk
+ * under a file lock and replaces it atomically, so several processes can share one directory.
+ */
+public class FooterCache {
+    private static final Logger LOG = LoggerFactory.getLogger(FooterCache.class);
+    
+    private static final String CACHE_FILE = "footer-cache.bin";
+    private static final String LOCK_FILE = "footer-cache.lock";
+    private static final int MAGIC = 0x46435631; // "FCV1"
+    
+    private final File dir;
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private boolean dirty;
+    
+    private FooterCache(File dir, int maxEntries) {
+        this.dir = dir;
+        this.maxEntries = maxEntries;
+        // Access order gives LRU iteration: eldest first
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > FooterCache.this.maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * Open (or create) the cache in the given directory. An unreadable cache file is
+     * logged and ignored; the cache then starts empty.
+     */
+    public static FooterCache open(File dir, int maxEntries) {
+        FooterCache cache = new FooterCache(dir, Math.max(1, maxEntries));
+        File file = new File(dir, CACHE_FILE);
+        if (file.exists()) {
+            try {
+                cache.readInto(file, cache.entries);
+                LOG.info("Loaded {} footer cache entries from {}", cache.entries.size(), file);
+            } catch (IOException e) {
+                LOG.warn("Ignoring unreadable footer cache {}: {}", file, e.getMessage());
+                cache.entries.clear();
+            }
+        }
+        return cache;
+    }
+    
+    /**
+     * @return cached row count, or -1 if the file is not cached or has changed
+     */
+    public long get(String path, long length, long modificationTime) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(hash(path));
+        }
+        if (entry != null && entry.length == length && entry.modificationTime == modificationTime) {
+            hits.incrementAndGet();
+            return entry.rowCount;
+        }
+        misses.incrementAndGet();
+        return -1;
+    }
+    
+    public void put(String path, long length, long modificationTime, long rowCount) {
+        Entry entry = new Entry(length, modificationTime, rowCount);
+        synchronized (this) {
+            entries.put(hash(path), entry);
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Merge the in-memory entries into the cache file on disk
+     */
+    public void save() throws IOException {
+        LinkedHashMap<Long, Entry> snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            snapshot = new LinkedHashMap<>(entries);
+            dirty = false;
+        }
+        
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create footer cache directory: " + dir);
+        }
+        File file = new File(dir, CACHE_FILE);
+        
+        try (RandomAccessFile lockFile = new RandomAccessFile(new File(dir, LOCK_FILE), "rw");
+             FileChannel channel = lockFile.getChannel();
+             FileLock ignored = channel.lock()) {
+            // Entries written by other processes since we loaded are kept, but ours are more recent
+            LinkedHashMap<Long, Entry> merged = new LinkedHashMap<>();
+            if (file.exists()) {
+                try {
+                    readInto(file, merged);
+                } catch (IOException e) {
+                    LOG.warn("Overwriting unreadable footer cache {}: {}", file, e.getMessage());
+                    merged.clear();
+                }
+            }
+            for (Map.Entry<Long, Entry> e : snapshot.entrySet()) {
+                merged.remove(e.getKey());
+                merged.put(e.getKey(), e.getValue());
+            }
+            
+            int skip = Math.max(0, merged.size() - maxEntries);
+            File tmp = File.createTempFile(CACHE_FILE, ".tmp", dir);
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(merged.size() - skip);
+                    for (Map.Entry<Long, Entry> e : merged.entrySet()) {
+                        if (skip > 0) {
+                            skip--;
+                            continue;
+                        }
+                        out.writeLong(e.getKey());
+                        out.writeLong(e.getValue().length);
+                        out.writeLong(e.getValue().modificationTime);
+                        out.writeLong(e.getValue().rowCount);
+                    }
+                }
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+            LOG.info("Saved {} footer cache entries to {} (hits: {}, misses: {})",
+                    Math.min(merged.size(), maxEntries), file, hits.get(), misses.get());
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    private void readInto(File file, Map<Long, Entry> target) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a footer cache file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                target.put(key, new Entry(in.readLong(), in.readLong(), in.readLong()));
+            }
+        } catch (EOFException e) {
+            throw new IOException("truncated footer cache file", e);
+        }
+    }
+    
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 path
+     */
+    static long hash(String path) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+    
+    private static final class Entry {
+        final long length;
+        final long modificationTime;
+        final long rowCount;
+        
+        Entry(long length, long modificationTime, long rowCount) {
+            this.length = length;
+            this.modificationTime = modificationTime;
+            this.rowCount = rowCount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.audit.counter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts occurrences of one byte value in a buffer: the hot loop of single-byte delimiter
+ * counting. Implementations are stateless and safe to share between threads.
+ */
+interface ByteScanner {
+    
+    String AUTO = "auto";
+    String SWAR = "swar";
+    String SCALAR = "scalar";
+    
+    /**
+     * @return number of bytes equal to {@code b} in {@code buffer[from, to)}
+     */
+    int count(byte[] buffer, int from, int to, byte b);
+    
+    /**
+     * @return number of bytes equal to {@code b} at absolute indexes [from, to) of
+     *         {@code buffer}; position and limit are ignored
+     */
+    default int count(ByteBuffer buffer, int from, int to, byte b) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return count(buffer.array(), offset + from, offset + to, b);
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Select a scanner by name: "swar" (8 bytes per step), "scalar", or "auto" for the
+     * fastest one available in this JVM
+     */
+    static ByteScanner create(String name) {
+        String kind = name == null ? AUTO : name.toLowerCase();
+        switch (kind) {
+            case AUTO:
+                return SwarByteScanner.isSupported() ? new SwarByteScanner() : new ScalarByteScanner();
+            case SWAR:
+                if (!SwarByteScanner.isSupported()) {
+                    Logger log = LoggerFactory.getLogger(ByteScanner.class);
+                    log.warn("SWAR scanner unavailable in this JVM, using scalar scanner");
+                    return new ScalarByteScanner();
+                }
+                return new SwarByteScanner();
+            case SCALAR:
+                return new ScalarByteScanner();
+            default:
+                throw new IllegalArgumentException("Unknown scanner: " + name + " (expected auto, swar or scalar)");
+        }
+    }
+}
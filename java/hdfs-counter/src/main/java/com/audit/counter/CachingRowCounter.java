@@ -0,0 +1,58 @@
+package com.audit.counter;
+
+import com.audit.cache.FooterCache;
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Row counter decorator that consults the footer cache before reading a file
+ */
+public class CachingRowCounter implements RowCounter {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(CachingRowCounter.class);
+    
+    private final RowCounter delegate;
+    private final FooterCache cache;
+    
+    public CachingRowCounter(RowCounter delegate, FooterCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+    
+    @Override
+    public long countRows(Path path) throws IOException {
+        // Without the listed status there is no length/mtime to validate against
+        return delegate.countRows(path);
+    }
+    
+    @Override
+    public long countRows(FileStatus status) throws IOException {
+        String path = status.getPath().toString();
+        long cached = cache.get(path, status.getLen(), status.getModificationTime());
+        if (cached >= 0) {
+            LOG.debug("Footer cache hit for {}: {} rows", path, cached);
+            return cached;
+        }
+        
+        long rowCount = delegate.countRows(status);
+        cache.put(path, status.getLen(), status.getModificationTime(), rowCount);
+        return rowCount;
+    }
+    
+    /**
+     * The cache holds row counts only, so the footer is always read; the count it yields
+     * refreshes the cache
+     */
+    @Override
+    public FileMetadata readMetadata(FileStatus status) throws IOException {
+        FileMetadata metadata = delegate.readMetadata(status);
+        cache.put(status.getPath().toString(), status.getLen(), status.getModificationTime(),
+                metadata.getRowCount());
+        return metadata;
+    }
+}
@@ -27,5 +27,26 @@ public class CounterFactory {
                 throw new IllegalArgumentException("Unsupported format: " + format);
         }
     }
+    
+    /**
+     * Create a row counter using the shared counter options: ORC/Parquet footer reads go
+     * through the footer cache, large text files are split across the split executor
+     *
+     * @param format file format (orc, parquet, textfile)
+     * @param conf Hadoop configuration
+     * @param delimiter line delimiter for textfile
+     * @param options footer cache and split settings
+     * @return appropriate RowCounter implementation
+     */
+    public static RowCounter createCounter(String format, Configuration conf, String delimiter,
+                                           CounterOptions options) {
+        if ("textfile".equalsIgnoreCase(format)) {
+            return new TextFileRowCounter(conf, delimiter, options);
+        }
+        RowCounter counter = createCounter(format, conf, delimiter);
+        if (options.getFooterCache() == null) {
+            return counter;
+        }
+        return new CachingRowCounter(counter, options.getFooterCache());
+    }
 }
-
@@ -0,0 +1,162 @@
+package com.audit.counter;
+
+import com.audit.cache.FooterCache;
+import com.audit.engine.ConcurrencyLimiter;
+import com.audit.engine.EngineMetrics;
+import com.audit.engine.RetryPolicy;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Process-wide settings shared by the counters of every request
+ */
+public class CounterOptions {
+    
+    /** Default target size of one text split; rounded up to a multiple of the block size */
+    public static final long DEFAULT_SPLIT_SIZE = 256L * 1024 * 1024;
+    
+    /** Single-byte delimiter scanners: auto picks the fastest one the JVM supports */
+    public static final String[] SCANNERS = {ByteScanner.AUTO, ByteScanner.SWAR, ByteScanner.SCALAR};
+    
+    private FooterCache footerCache;
+    
+    private ExecutorService splitExecutor;
+    
+    private int splitParallelism = 1;
+    
+    private long splitSize = DEFAULT_SPLIT_SIZE;
+    
+    private String scanner = ByteScanner.AUTO;
+    
+    private ScanBufferPool bufferPool = new ScanBufferPool(ScanBufferPool.DEFAULT_MAX_MEMORY);
+    
+    private boolean metadataReport;
+    
+    private ConcurrencyLimiter concurrencyLimiter;
+    
+    private EngineMetrics metrics;
+    
+    private RetryPolicy retryPolicy = new RetryPolicy(RetryPolicy.DEFAULT_MAX_RETRIES, RetryPolicy.DEFAULT_BASE_DELAY_MS);
+    
+    // Getters and Setters
+    
+    /**
+     * @return ORC/Parquet footer cache, or null when caching is disabled
+     */
+    public FooterCache getFooterCache() {
+        return footerCache;
+    }
+    
+    public void setFooterCache(FooterCache footerCache) {
+        this.footerCache = footerCache;
+    }
+    
+    /**
+     * @return pool that helps count the splits of large text files, or null to count sequentially
+     */
+    public ExecutorService getSplitExecutor() {
+        return splitExecutor;
+    }
+    
+    public void setSplitExecutor(ExecutorService splitExecutor) {
+        this.splitExecutor = splitExecutor;
+    }
+    
+    /**
+     * @return maximum number of threads counting the splits of one file
+     */
+    public int getSplitParallelism() {
+        return splitParallelism;
+    }
+    
+    public void setSplitParallelism(int splitParallelism) {
+        this.splitParallelism = splitParallelism;
+    }
+    
+    /**
+     * @return target split size in bytes, 0 to disable splitting
+     */
+    public long getSplitSize() {
+        return splitSize;
+    }
+    
+    public void setSplitSize(long splitSize) {
+        this.splitSize = splitSize;
+    }
+    
+    /**
+     * @return single-byte delimiter scanner: auto, swar or scalar
+     */
+    public String getScanner() {
+        return scanner;
+    }
+    
+    public void setScanner(String scanner) {
+        this.scanner = scanner;
+    }
+    
+    /**
+     * @return read buffers shared by all text counters, bounded in total memory
+     */
+    public ScanBufferPool getBufferPool() {
+        return bufferPool;
+    }
+    
+    public void setBufferPool(ScanBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+    
+    /**
+     * @return true to report per-file metadata for every request, not only those asking for it
+     */
+    public boolean isMetadataReport() {
+        return metadataReport;
+    }
+    
+    public void setMetadataReport(boolean metadataReport) {
+        this.metadataReport = metadataReport;
+    }
+    
+    /**
+     * @return adaptive limit on files counted at once across all requests, or null for no
+     *         limit beyond the pool size
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+    
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+    
+    /**
+     * @return counters exported on the metrics endpoint, or null when it is disabled
+     */
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * @return retries of failed files by error class
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+    
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    public static boolean isValidScanner(String scanner) {
+        for (String name : SCANNERS) {
+            if (name.equalsIgnoreCase(scanner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
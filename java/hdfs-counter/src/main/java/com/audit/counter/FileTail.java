@@ -0,0 +1,24 @@
+package com.audit.counter;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+
+import java.io.IOException;
+
+/**
+ * Positioned reads of the end of a file, where ORC and Parquet keep their footers
+ */
+final class FileTail {
+    
+    private FileTail() {
+    }
+    
+    /**
+     * Read the last {@code size} bytes (or the whole file if shorter) with one positioned read
+     */
+    static byte[] read(FSDataInputStream in, long fileLength, int size) throws IOException {
+        int n = (int) Math.min(fileLength, size);
+        byte[] buf = new byte[n];
+        in.readFully(fileLength - n, buf, 0, n);
+        return buf;
+    }
+}
@@ -0,0 +1,14 @@
+package com.audit.counter;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the lightweight footer decoders when a file uses a layout they don't handle.
+ * Callers fall back to the format's full reader; genuine I/O errors are not wrapped.
+ */
+class FooterFormatException extends IOException {
+    
+    FooterFormatException(String message) {
+        super(message);
+    }
+}
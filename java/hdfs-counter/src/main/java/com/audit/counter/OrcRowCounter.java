@@ -1,9 +1,15 @@
 package com.audit.counter;
 
+import com.audit.model.FileMetadata;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.orc.CompressionKind;
 import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
+import org.apache.orc.StripeInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,5 +39,55 @@ public class OrcRowCounter implements RowCounter {
             return rowCount;
         }
     }
+    
+    /**
+     * Fast path: the listed length locates the tail, one positioned read fetches postscript
+     * and footer, and only numberOfRows is decoded
+     */
+    @Override
+    public long countRows(FileStatus status) throws IOException {
+        Path path = status.getPath();
+        LOG.debug("Counting rows in ORC file tail: {}", path);
+        
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataInputStream in = fs.open(path)) {
+            long rowCount = OrcTail.numberOfRows(in, status.getLen());
+            LOG.debug("ORC file {} has {} rows", path, rowCount);
+            return rowCount;
+        } catch (FooterFormatException e) {
+            LOG.debug("Falling back to ORC reader for {}: {}", path, e.getMessage());
+        }
+        
+        // Passing the listed length keeps the reader from calling getFileStatus
+        try (Reader reader = OrcFile.createReader(path,
+                OrcFile.readerOptions(conf).filesystem(fs).maxLength(status.getLen()))) {
+            return reader.getNumberOfRows();
+        }
+    }
+    
+    @Override
+    public FileMetadata readMetadata(FileStatus status) throws IOException {
+        Path path = status.getPath();
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataInputStream in = fs.open(path)) {
+            return OrcTail.metadata(in, path.toString(), status.getLen());
+        } catch (FooterFormatException e) {
+            LOG.debug("Falling back to ORC reader for {}: {}", path, e.getMessage());
+        }
+        
+        try (Reader reader = OrcFile.createReader(path,
+                OrcFile.readerOptions(conf).filesystem(fs).maxLength(status.getLen()))) {
+            FileMetadata metadata = new FileMetadata(path.toString(), reader.getNumberOfRows(), status.getLen());
+            long stripeBytes = 0;
+            for (StripeInformation stripe : reader.getStripes()) {
+                stripeBytes += stripe.getLength();
+            }
+            metadata.setRowGroups(reader.getStripes().size());
+            metadata.setCompressedBytes(stripeBytes);
+            if (reader.getCompressionKind() == CompressionKind.NONE) {
+                metadata.setUncompressedBytes(stripeBytes);
+            }
+            return metadata;
+        }
+    }
 }
-
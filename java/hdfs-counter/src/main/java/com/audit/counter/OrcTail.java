@@ -0,0 +1,243 @@
+package com.audit.counter;
+
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.orc.CompressionCodec;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.impl.OrcCodecPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the row count of an ORC file from its tail without building a Reader.
+ *
+ * An ORC file ends with [metadata][footer][postscript][1-byte postscript length]. The
+ * postscript is never compressed and gives the footer length and codec; the footer holds
+ * numberOfRows (field 6) and the stripe list (field 3). Only these two messages are decoded.
+ */
+final class OrcTail {
+    
+    /** Same initial guess as the ORC reader; enough for the footer of most files */
+    static final int TAIL_GUESS = 16 * 1024;
+    
+    private static final int PS_FOOTER_LENGTH = 1;
+    private static final int PS_COMPRESSION = 2;
+    private static final int PS_COMPRESSION_BLOCK_SIZE = 3;
+    private static final int FOOTER_STRIPES = 3;
+    private static final int FOOTER_NUMBER_OF_ROWS = 6;
+    private static final int STRIPE_INDEX_LENGTH = 2;
+    private static final int STRIPE_DATA_LENGTH = 3;
+    private static final int STRIPE_FOOTER_LENGTH = 4;
+    
+    private static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 256 * 1024;
+    private static final int CHUNK_HEADER_SIZE = 3;
+    
+    private OrcTail() {
+    }
+    
+    static long numberOfRows(FSDataInputStream in, long fileLength) throws IOException {
+        // Hive writes zero-byte files as empty ORC files
+        if (fileLength == 0) {
+            return 0;
+        }
+        
+        ProtobufDecoder decoder = readFooter(in, fileLength).decoder();
+        while (decoder.hasMore()) {
+            int tag = decoder.readTag();
+            if (tag >>> 3 == FOOTER_NUMBER_OF_ROWS) {
+                return decoder.readVarint();
+            }
+            decoder.skip(tag & 7);
+        }
+        // Unset in the footer means no rows
+        return 0;
+    }
+    
+    /**
+     * Rows, stripes and stored stripe bytes from the same footer read. ORC records no
+     * uncompressed size, so it is only reported for uncompressed files.
+     */
+    static FileMetadata metadata(FSDataInputStream in, String file, long fileLength) throws IOException {
+        FileMetadata metadata = new FileMetadata(file, 0, fileLength);
+        if (fileLength == 0) {
+            metadata.setRowGroups(0);
+            metadata.setCompressedBytes(0L);
+            metadata.setUncompressedBytes(0L);
+            return metadata;
+        }
+        
+        Footer footer = readFooter(in, fileLength);
+        ProtobufDecoder decoder = footer.decoder();
+        int stripes = 0;
+        long stripeBytes = 0;
+        while (decoder.hasMore()) {
+            int tag = decoder.readTag();
+            int field = tag >>> 3;
+            if (field == FOOTER_STRIPES && (tag & 7) == ProtobufDecoder.WIRE_LENGTH_DELIMITED) {
+                stripes++;
+                stripeBytes += stripeLength(decoder.readMessage());
+            } else if (field == FOOTER_NUMBER_OF_ROWS) {
+                metadata.setRowCount(decoder.readVarint());
+            } else {
+                decoder.skip(tag & 7);
+            }
+        }
+        metadata.setRowGroups(stripes);
+        metadata.setCompressedBytes(stripeBytes);
+        if (footer.kind == CompressionKind.NONE) {
+            metadata.setUncompressedBytes(stripeBytes);
+        }
+        return metadata;
+    }
+    
+    /**
+     * Index + data + stripe footer length of one StripeInformation
+     */
+    private static long stripeLength(ProtobufDecoder stripe) throws FooterFormatException {
+        long length = 0;
+        while (stripe.hasMore()) {
+            int tag = stripe.readTag();
+            int field = tag >>> 3;
+            if (field == STRIPE_INDEX_LENGTH || field == STRIPE_DATA_LENGTH || field == STRIPE_FOOTER_LENGTH) {
+                length += stripe.readVarint();
+            } else {
+                stripe.skip(tag & 7);
+            }
+        }
+        return length;
+    }
+    
+    /**
+     * Locate, read and if needed decompress the footer of a non-empty file
+     */
+    private static Footer readFooter(FSDataInputStream in, long fileLength) throws IOException {
+        byte[] tail = FileTail.read(in, fileLength, TAIL_GUESS);
+        int psLength = tail[tail.length - 1] & 0xff;
+        int psOffset = tail.length - 1 - psLength;
+        if (psOffset < 0) {
+            throw new FooterFormatException("ORC postscript is larger than the file");
+        }
+        
+        long footerLength = -1;
+        int compression = 0;
+        int blockSize = DEFAULT_COMPRESSION_BLOCK_SIZE;
+        ProtobufDecoder ps = new ProtobufDecoder(tail, psOffset, psLength);
+        while (ps.hasMore()) {
+            int tag = ps.readTag();
+            switch (tag >>> 3) {
+                case PS_FOOTER_LENGTH:
+                    footerLength = ps.readVarint();
+                    break;
+                case PS_COMPRESSION:
+                    compression = (int) ps.readVarint();
+                    break;
+                case PS_COMPRESSION_BLOCK_SIZE:
+                    blockSize = (int) ps.readVarint();
+                    break;
+                default:
+                    ps.skip(tag & 7);
+            }
+        }
+        if (footerLength < 0 || footerLength > fileLength - 1 - psLength) {
+            throw new FooterFormatException("Invalid ORC footer length: " + footerLength);
+        }
+        
+        // Oversized footer: one more read covering exactly footer + postscript
+        int needed = (int) footerLength + psLength + 1;
+        if (needed > tail.length) {
+            tail = FileTail.read(in, fileLength, needed);
+            psOffset = tail.length - 1 - psLength;
+        }
+        int footerOffset = psOffset - (int) footerLength;
+        
+        CompressionKind kind = compressionKind(compression);
+        if (kind == CompressionKind.NONE) {
+            return new Footer(kind, tail, footerOffset, (int) footerLength);
+        }
+        byte[] footer = decompress(kind, blockSize, tail, footerOffset, (int) footerLength);
+        return new Footer(kind, footer, 0, footer.length);
+    }
+    
+    private static CompressionKind compressionKind(int value) throws FooterFormatException {
+        switch (value) {
+            case 0:
+                return CompressionKind.NONE;
+            case 1:
+                return CompressionKind.ZLIB;
+            case 2:
+                return CompressionKind.SNAPPY;
+            case 3:
+                return CompressionKind.LZO;
+            case 4:
+                return CompressionKind.LZ4;
+            case 5:
+                return CompressionKind.ZSTD;
+            default:
+                throw new FooterFormatException("Unsupported ORC compression: " + value);
+        }
+    }
+    
+    /**
+     * Decode a compressed ORC stream: a sequence of chunks, each with a 3-byte little-endian
+     * header (length << 1 | isOriginal)
+     */
+    private static byte[] decompress(CompressionKind kind, int blockSize, byte[] buf, int offset, int length)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(length * 4, 1024));
+        CompressionCodec codec = OrcCodecPool.getCodec(kind);
+        try {
+            int pos = offset;
+            int end = offset + length;
+            ByteBuffer chunkOut = null;
+            while (pos < end) {
+                if (end - pos < CHUNK_HEADER_SIZE) {
+                    throw new FooterFormatException("Truncated ORC chunk header");
+                }
+                int header = (buf[pos] & 0xff) | (buf[pos + 1] & 0xff) << 8 | (buf[pos + 2] & 0xff) << 16;
+                pos += CHUNK_HEADER_SIZE;
+                int chunkLength = header >>> 1;
+                if (chunkLength > end - pos) {
+                    throw new FooterFormatException("Truncated ORC chunk");
+                }
+                
+                if ((header & 1) == 1) {
+                    out.write(buf, pos, chunkLength);
+                } else {
+                    if (chunkOut == null) {
+                        chunkOut = ByteBuffer.allocate(blockSize);
+                    }
+                    chunkOut.clear();
+                    codec.decompress(ByteBuffer.wrap(buf, pos, chunkLength), chunkOut);
+                    out.write(chunkOut.array(), chunkOut.arrayOffset() + chunkOut.position(), chunkOut.remaining());
+                }
+                pos += chunkLength;
+            }
+        } finally {
+            OrcCodecPool.returnCodec(kind, codec);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Decoded footer bytes and the file's compression
+     */
+    private static final class Footer {
+        final CompressionKind kind;
+        final byte[] buf;
+        final int offset;
+        final int length;
+        
+        Footer(CompressionKind kind, byte[] buf, int offset, int length) {
+            this.kind = kind;
+            this.buf = buf;
+            this.offset = offset;
+            this.length = length;
+        }
+        
+        ProtobufDecoder decoder() {
+            return new ProtobufDecoder(buf, offset, length);
+        }
+    }
+}
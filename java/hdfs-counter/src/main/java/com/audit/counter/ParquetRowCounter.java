@@ -1,8 +1,13 @@
 package com.audit.counter;
 
+import com.audit.model.FileMetadata;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.util.HadoopInputFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,5 +39,53 @@ public class ParquetRowCounter implements RowCounter {
             return totalRows;
         }
     }
+    
+    /**
+     * Fast path: the listed length locates the tail, one positioned read fetches the footer
+     * (two if it is larger than the guess), and only row group row counts are decoded
+     */
+    @Override
+    public long countRows(FileStatus status) throws IOException {
+        Path path = status.getPath();
+        LOG.debug("Counting rows in Parquet file tail: {}", path);
+        
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataInputStream in = fs.open(path)) {
+            long totalRows = ParquetTail.numberOfRows(in, status.getLen());
+            LOG.debug("Parquet file {} has {} rows", path, totalRows);
+            return totalRows;
+        } catch (FooterFormatException e) {
+            LOG.debug("Falling back to Parquet reader for {}: {}", path, e.getMessage());
+        }
+        
+        // Encrypted or unexpected footers; fromStatus avoids another getFileStatus
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromStatus(status, conf))) {
+            return reader.getRecordCount();
+        }
+    }
+    
+    @Override
+    public FileMetadata readMetadata(FileStatus status) throws IOException {
+        Path path = status.getPath();
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataInputStream in = fs.open(path)) {
+            return ParquetTail.metadata(in, path.toString(), status.getLen());
+        } catch (FooterFormatException e) {
+            LOG.debug("Falling back to Parquet reader for {}: {}", path, e.getMessage());
+        }
+        
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromStatus(status, conf))) {
+            FileMetadata metadata = new FileMetadata(path.toString(), reader.getRecordCount(), status.getLen());
+            long compressed = 0;
+            long uncompressed = 0;
+            for (BlockMetaData block : reader.getRowGroups()) {
+                compressed += block.getCompressedSize();
+                uncompressed += block.getTotalByteSize();
+            }
+            metadata.setRowGroups(reader.getRowGroups().size());
+            metadata.setCompressedBytes(compressed);
+            metadata.setUncompressedBytes(uncompressed);
+            return metadata;
+        }
+    }
 }
-
@@ -0,0 +1,199 @@
+package com.audit.counter;
+
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.fs.FSDataInputStream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the row count of a Parquet file from its tail without building a ParquetFileReader.
+ *
+ * A Parquet file ends with [FileMetaData][4-byte little-endian footer length]["PAR1"].
+ * FileMetaData is Thrift compact encoded; only row_groups (field 4) is walked, summing each
+ * RowGroup's num_rows (field 3) and skipping schema and column chunk metadata.
+ */
+final class ParquetTail {
+    
+    /** Covers the footer of most files in one read, including moderately wide tables */
+    static final int TAIL_GUESS = 64 * 1024;
+    
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENCRYPTED_MAGIC = "PARE".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_SIZE = 8;
+    
+    private static final int FILE_METADATA_ROW_GROUPS = 4;
+    private static final int ROW_GROUP_COLUMNS = 1;
+    private static final int ROW_GROUP_TOTAL_BYTE_SIZE = 2;
+    private static final int ROW_GROUP_NUM_ROWS = 3;
+    private static final int ROW_GROUP_TOTAL_COMPRESSED_SIZE = 6;
+    private static final int COLUMN_CHUNK_META_DATA = 3;
+    private static final int COLUMN_META_TOTAL_COMPRESSED_SIZE = 7;
+    
+    private ParquetTail() {
+    }
+    
+    static long numberOfRows(FSDataInputStream in, long fileLength) throws IOException {
+        ThriftCompactDecoder decoder = readFooter(in, fileLength);
+        long rows = 0;
+        decoder.readStructBegin();
+        int type;
+        while ((type = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+            if (decoder.fieldId() == FILE_METADATA_ROW_GROUPS && type == ThriftCompactDecoder.TYPE_LIST) {
+                int size = decoder.readListBegin();
+                for (int i = 0; i < size; i++) {
+                    rows += rowGroupRows(decoder);
+                }
+                // Remaining fields (key/value metadata, created_by, ...) are not needed
+                return rows;
+            }
+            decoder.skip(type);
+        }
+        return rows;
+    }
+    
+    /**
+     * Rows, row groups and compressed/uncompressed column data sizes from the same footer
+     * read. Column chunks are only walked for the compressed size when a row group lacks
+     * total_compressed_size (older writers).
+     */
+    static FileMetadata metadata(FSDataInputStream in, String file, long fileLength) throws IOException {
+        ThriftCompactDecoder decoder = readFooter(in, fileLength);
+        FileMetadata metadata = new FileMetadata(file, 0, fileLength);
+        long[] totals = new long[3];
+        int rowGroups = 0;
+        decoder.readStructBegin();
+        int type;
+        while ((type = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+            if (decoder.fieldId() == FILE_METADATA_ROW_GROUPS && type == ThriftCompactDecoder.TYPE_LIST) {
+                rowGroups = decoder.readListBegin();
+                for (int i = 0; i < rowGroups; i++) {
+                    addRowGroup(decoder, totals);
+                }
+                break;
+            }
+            decoder.skip(type);
+        }
+        metadata.setRowCount(totals[0]);
+        metadata.setRowGroups(rowGroups);
+        metadata.setCompressedBytes(totals[1]);
+        metadata.setUncompressedBytes(totals[2]);
+        return metadata;
+    }
+    
+    /**
+     * Read the trailer and return a decoder positioned at the start of FileMetaData
+     */
+    private static ThriftCompactDecoder readFooter(FSDataInputStream in, long fileLength) throws IOException {
+        if (fileLength < MAGIC.length + TRAILER_SIZE) {
+            throw new FooterFormatException("File too short for a Parquet footer");
+        }
+        
+        byte[] tail = FileTail.read(in, fileLength, TAIL_GUESS);
+        int magicOffset = tail.length - MAGIC.length;
+        if (matches(tail, magicOffset, ENCRYPTED_MAGIC)) {
+            throw new FooterFormatException("Encrypted Parquet footer");
+        }
+        if (!matches(tail, magicOffset, MAGIC)) {
+            throw new FooterFormatException("Missing Parquet magic");
+        }
+        
+        int lengthOffset = tail.length - TRAILER_SIZE;
+        long footerLength = (tail[lengthOffset] & 0xffL)
+                | (tail[lengthOffset + 1] & 0xffL) << 8
+                | (tail[lengthOffset + 2] & 0xffL) << 16
+                | (tail[lengthOffset + 3] & 0xffL) << 24;
+        if (footerLength > fileLength - TRAILER_SIZE - MAGIC.length) {
+            throw new FooterFormatException("Invalid Parquet footer length: " + footerLength);
+        }
+        
+        // Oversized footer: one more read covering exactly footer + trailer
+        int needed = (int) footerLength + TRAILER_SIZE;
+        if (needed > tail.length) {
+            tail = FileTail.read(in, fileLength, needed);
+        }
+        int footerOffset = tail.length - TRAILER_SIZE - (int) footerLength;
+        return new ThriftCompactDecoder(tail, footerOffset, (int) footerLength);
+    }
+    
+    private static long rowGroupRows(ThriftCompactDecoder decoder) throws FooterFormatException {
+        long rows = 0;
+        decoder.readStructBegin();
+        int type;
+        while ((type = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+            if (decoder.fieldId() == ROW_GROUP_NUM_ROWS && type == ThriftCompactDecoder.TYPE_I64) {
+                rows = decoder.readI64();
+            } else {
+                decoder.skip(type);
+            }
+        }
+        decoder.readStructEnd();
+        return rows;
+    }
+    
+    /**
+     * Add one RowGroup to totals: [rows, compressed bytes, uncompressed bytes]
+     */
+    private static void addRowGroup(ThriftCompactDecoder decoder, long[] totals) throws FooterFormatException {
+        long columnsCompressed = 0;
+        long compressed = -1;
+        decoder.readStructBegin();
+        int type;
+        while ((type = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+            int field = decoder.fieldId();
+            if (field == ROW_GROUP_COLUMNS && type == ThriftCompactDecoder.TYPE_LIST) {
+                int size = decoder.readListBegin();
+                for (int i = 0; i < size; i++) {
+                    columnsCompressed += columnCompressedSize(decoder);
+                }
+            } else if (field == ROW_GROUP_NUM_ROWS && type == ThriftCompactDecoder.TYPE_I64) {
+                totals[0] += decoder.readI64();
+            } else if (field == ROW_GROUP_TOTAL_BYTE_SIZE && type == ThriftCompactDecoder.TYPE_I64) {
+                totals[2] += decoder.readI64();
+            } else if (field == ROW_GROUP_TOTAL_COMPRESSED_SIZE && type == ThriftCompactDecoder.TYPE_I64) {
+                compressed = decoder.readI64();
+            } else {
+                decoder.skip(type);
+            }
+        }
+        decoder.readStructEnd();
+        totals[1] += compressed >= 0 ? compressed : columnsCompressed;
+    }
+    
+    /**
+     * total_compressed_size of a ColumnChunk's ColumnMetaData, 0 if absent
+     */
+    private static long columnCompressedSize(ThriftCompactDecoder decoder) throws FooterFormatException {
+        long size = 0;
+        decoder.readStructBegin();
+        int type;
+        while ((type = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+            if (decoder.fieldId() == COLUMN_CHUNK_META_DATA && type == ThriftCompactDecoder.TYPE_STRUCT) {
+                decoder.readStructBegin();
+                int metaType;
+                while ((metaType = decoder.readFieldBegin()) != ThriftCompactDecoder.TYPE_STOP) {
+                    if (decoder.fieldId() == COLUMN_META_TOTAL_COMPRESSED_SIZE
+                            && metaType == ThriftCompactDecoder.TYPE_I64) {
+                        size = decoder.readI64();
+                    } else {
+                        decoder.skip(metaType);
+                    }
+                }
+                decoder.readStructEnd();
+            } else {
+                decoder.skip(type);
+            }
+        }
+        decoder.readStructEnd();
+        return size;
+    }
+    
+    private static boolean matches(byte[] buf, int offset, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (buf[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package com.audit.counter;
+
+/**
+ * Minimal protobuf wire-format decoder: reads tags and varints and skips everything else,
+ * so a single field can be pulled out of a message without generated classes
+ */
+final class ProtobufDecoder {
+    
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LENGTH_DELIMITED = 2;
+    static final int WIRE_FIXED32 = 5;
+    
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+    
+    ProtobufDecoder(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+    
+    boolean hasMore() {
+        return pos < limit;
+    }
+    
+    /**
+     * @return the next tag (field number << 3 | wire type)
+     */
+    int readTag() throws FooterFormatException {
+        return (int) readVarint();
+    }
+    
+    long readVarint() throws FooterFormatException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= limit) {
+                throw new FooterFormatException("Truncated protobuf varint");
+            }
+            byte b = buf[pos++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new FooterFormatException("Malformed protobuf varint");
+    }
+    
+    /**
+     * Read a length-delimited field as an embedded message
+     *
+     * @return decoder over the message bytes; this decoder continues after them
+     */
+    ProtobufDecoder readMessage() throws FooterFormatException {
+        long length = readVarint();
+        int start = pos;
+        advance(length);
+        return new ProtobufDecoder(buf, start, (int) length);
+    }
+    
+    void skip(int wireType) throws FooterFormatException {
+        switch (wireType) {
+            case WIRE_VARINT:
+                readVarint();
+                return;
+            case WIRE_FIXED64:
+                advance(8);
+                return;
+            case WIRE_LENGTH_DELIMITED:
+                advance(readVarint());
+                return;
+            case WIRE_FIXED32:
+                advance(4);
+                return;
+            default:
+                throw new FooterFormatException("Unsupported protobuf wire type: " + wireType);
+        }
+    }
+    
+    private void advance(long n) throws FooterFormatException {
+        if (n < 0 || n > limit - pos) {
+            throw new FooterFormatException("Truncated protobuf field");
+        }
+        pos += (int) n;
+    }
+}
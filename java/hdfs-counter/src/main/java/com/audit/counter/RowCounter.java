@@ -1,10 +1,15 @@
 package com.audit.counter;
 
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import java.io.IOException;
 
 /**
- * Interface for row counting implementations
+ * Interface for row counting implementations.
+ * The engine always calls {@link #countRows(FileStatus)} with the status returned by
+ * listing, so implementations should take length and modification time from it rather
+ * than asking the NameNode again; {@link #countRows(Path)} is for callers without one.
  */
 public interface RowCounter {
     
@@ -16,5 +21,28 @@ public interface RowCounter {
      * @throws IOException if file cannot be read
      */
     long countRows(Path path) throws IOException;
+    
+    /**
+     * Count the number of rows in a file already returned by listing
+     *
+     * @param status listed file status (path, length, modification time)
+     * @return number of rows
+     * @throws IOException if file cannot be read
+     */
+    default long countRows(FileStatus status) throws IOException {
+        return countRows(status.getPath());
+    }
+    
+    /**
+     * Row count plus whatever layout details the format's footer records (row groups or
+     * stripes, compressed and uncompressed sizes), for the metadata report
+     *
+     * @param status listed file status (path, length, modification time)
+     * @return per-file metadata; formats without a footer report rows and size only
+     * @throws IOException if file cannot be read
+     */
+    default FileMetadata readMetadata(FileStatus status) throws IOException {
+        return new FileMetadata(status.getPath().toString(), countRows(status), status.getLen());
+    }
 }
 
@@ -0,0 +1,18 @@
+package com.audit.counter;
+
+/**
+ * Byte-at-a-time scanner, the portable fallback
+ */
+final class ScalarByteScanner implements ByteScanner {
+    
+    @Override
+    public int count(byte[] buffer, int from, int to, byte b) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,170 @@
+package com.audit.counter;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read buffers shared by all text counting threads, with a hard cap on the memory they
+ * hold (buffers in use plus idle ones kept for reuse).
+ *
+ * Buffers come in power-of-two size classes from {@link #MIN_BUFFER_SIZE} to
+ * {@link #MAX_BUFFER_SIZE}, heap or direct. A request gets the smallest class that holds
+ * it; when the cap leaves no room, idle buffers of other classes are dropped, then a
+ * smaller class is handed out, and only when not even the smallest fits does the caller
+ * wait for a buffer to be released. Callers must release a buffer before blocking on
+ * anything else, so waiting for memory cannot deadlock.
+ *
+ * Guarded by a ReentrantLock rather than a monitor: a virtual thread waiting on a monitor
+ * pins its carrier thread on Java 21, and counting may run on virtual threads.
+ */
+public class ScanBufferPool {
+    
+    public static final int MIN_BUFFER_SIZE = 64 * 1024;
+    public static final int MAX_BUFFER_SIZE = 8 * 1024 * 1024;
+    
+    /** Default cap: 32 threads with the largest buffers */
+    public static final long DEFAULT_MAX_MEMORY = 256L * 1024 * 1024;
+    
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE / MIN_BUFFER_SIZE) + 1;
+    
+    private final long maxMemory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    /** Idle buffers per size class: heap classes first, then direct */
+    private final ArrayDeque<ByteBuffer>[] idle;
+    /** Bytes of all buffers created and not yet dropped */
+    private long allocated;
+    private long idleBytes;
+    
+    /**
+     * @param maxMemory cap on the bytes held by the pool, at least one smallest buffer
+     */
+    @SuppressWarnings("unchecked")
+    public ScanBufferPool(long maxMemory) {
+        this.maxMemory = Math.max(maxMemory, MIN_BUFFER_SIZE);
+        this.idle = new ArrayDeque[CLASSES * 2];
+        for (int i = 0; i < idle.length; i++) {
+            idle[i] = new ArrayDeque<>();
+        }
+    }
+    
+    /**
+     * Smallest buffer size that holds {@code length} bytes, clamped to the size classes
+     */
+    public static int bufferSize(long length) {
+        if (length <= MIN_BUFFER_SIZE) {
+            return MIN_BUFFER_SIZE;
+        }
+        if (length >= MAX_BUFFER_SIZE) {
+            return MAX_BUFFER_SIZE;
+        }
+        return Integer.highestOneBit((int) length - 1) << 1;
+    }
+    
+    /**
+     * Take a buffer of {@code bufferSize(size)} bytes, or a smaller one when the memory cap
+     * is reached. The buffer is cleared; heap buffers are backed by an accessible array.
+     *
+     * @throws InterruptedIOException if interrupted while waiting for memory
+     */
+    public ByteBuffer acquire(int size, boolean direct) throws InterruptedIOException {
+        int wanted = classOf(Math.min(bufferSize(size), capacityClassSize()));
+        lock.lock();
+        try {
+            while (true) {
+                for (int c = wanted; c >= 0; c--) {
+                    ByteBuffer buffer = take(c, direct);
+                    if (buffer != null) {
+                        buffer.clear();
+                        return buffer;
+                    }
+                }
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a scan buffer");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Return a buffer from {@link #acquire} for reuse
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            idle[slot(classOf(buffer.capacity()), buffer.isDirect())].push(buffer);
+            idleBytes += buffer.capacity();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return bytes held by the pool, in use or idle
+     */
+    public long getAllocatedBytes() {
+        lock.lock();
+        try {
+            return allocated;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+    
+    /**
+     * An idle buffer of class {@code c}, or a new one if the cap allows after dropping idle
+     * buffers of other classes; null if neither is possible. Called with the lock held.
+     */
+    private ByteBuffer take(int c, boolean direct) {
+        ByteBuffer buffer = idle[slot(c, direct)].poll();
+        if (buffer != null) {
+            idleBytes -= buffer.capacity();
+            return buffer;
+        }
+        int size = MIN_BUFFER_SIZE << c;
+        if (allocated + size - idleBytes > maxMemory) {
+            return null;
+        }
+        // Room exists once idle buffers are dropped; larger classes go first
+        for (int s = idle.length - 1; s >= 0 && allocated + size > maxMemory; s--) {
+            while (!idle[s].isEmpty() && allocated + size > maxMemory) {
+                int dropped = idle[s].pop().capacity();
+                allocated -= dropped;
+                idleBytes -= dropped;
+            }
+        }
+        allocated += size;
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+    
+    /**
+     * Largest size class that fits under the cap
+     */
+    private int capacityClassSize() {
+        return (int) Math.min(MAX_BUFFER_SIZE, Long.highestOneBit(maxMemory));
+    }
+    
+    private static int classOf(int size) {
+        return Integer.numberOfTrailingZeros(size / MIN_BUFFER_SIZE);
+    }
+    
+    private static int slot(int c, boolean direct) {
+        return direct ? CLASSES + c : c;
+    }
+}
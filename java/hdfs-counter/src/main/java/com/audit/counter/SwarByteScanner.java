@@ -0,0 +1,159 @@
+package com.audit.counter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * SIMD-within-a-register scanner: loads 8 bytes at a time as a long, turns matching bytes
+ * into zero bytes with XOR, flags each zero byte's high bit exactly and counts the flags
+ * with a single popcount. The scalar loop only handles the unaligned tail.
+ *
+ * Needs sun.misc.Unsafe for unchecked 8-byte loads from byte[] (Java 8 has no
+ * VarHandle or Vector API); {@link #isSupported()} is false where it is missing.
+ * Unsafe is looked up reflectively and called through constant method handles, which the
+ * JIT inlines like direct calls, so the build does not depend on the internal API.
+ * Direct buffers are scanned in place through their native address.
+ */
+final class SwarByteScanner implements ByteScanner {
+    
+    private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONES = 0x0101010101010101L;
+    
+    /** sun.misc.Unsafe instance, null if unavailable */
+    private static final Object UNSAFE = loadUnsafe();
+    /** Unsafe.getLong(Object, long) and getByte(Object, long) bound to {@link #UNSAFE} */
+    private static final MethodHandle GET_LONG = accessor("getLong", long.class);
+    private static final MethodHandle GET_BYTE = accessor("getByte", byte.class);
+    private static final long BYTE_ARRAY_OFFSET = invoke("arrayBaseOffset", Class.class, byte[].class);
+    /** Offset of java.nio.Buffer.address, -1 if unknown */
+    private static final long BUFFER_ADDRESS_OFFSET = addressOffset();
+    
+    static boolean isSupported() {
+        return GET_LONG != null && GET_BYTE != null && BYTE_ARRAY_OFFSET >= 0
+                && invoke("arrayIndexScale", Class.class, byte[].class) == 1;
+    }
+    
+    @Override
+    public int count(byte[] buffer, int from, int to, byte b) {
+        if (from < 0 || to > buffer.length || from > to) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + buffer.length);
+        }
+        return count(buffer, BYTE_ARRAY_OFFSET + from, to - from, b);
+    }
+    
+    @Override
+    public int count(ByteBuffer buffer, int from, int to, byte b) {
+        if (!buffer.isDirect() || BUFFER_ADDRESS_OFFSET < 0) {
+            return ByteScanner.super.count(buffer, from, to, b);
+        }
+        if (from < 0 || to > buffer.capacity() || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + buffer.capacity());
+        }
+        // The caller holds the buffer, so its memory stays valid while it is read
+        return count(null, getLong(buffer, BUFFER_ADDRESS_OFFSET) + from, to - from, b);
+    }
+    
+    /**
+     * Count {@code length} bytes at {@code offset} of {@code base}: a byte[] with an array
+     * offset, or null with an absolute address
+     */
+    private static int count(Object base, long offset, int length, byte b) {
+        long pattern = (b & 0xffL) * ONES;
+        int count = 0;
+        int i = 0;
+        
+        // Four independent words per step keeps the popcounts off one dependency chain
+        for (int limit = length - 32; i <= limit; i += 32) {
+            long address = offset + i;
+            count += Long.bitCount(zeroBytes(getLong(base, address) ^ pattern))
+                    + Long.bitCount(zeroBytes(getLong(base, address + 8) ^ pattern))
+                    + Long.bitCount(zeroBytes(getLong(base, address + 16) ^ pattern))
+                    + Long.bitCount(zeroBytes(getLong(base, address + 24) ^ pattern));
+        }
+        for (int limit = length - 8; i <= limit; i += 8) {
+            count += Long.bitCount(zeroBytes(getLong(base, offset + i) ^ pattern));
+        }
+        for (; i < length; i++) {
+            if (getByte(base, offset + i) == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * High bit of each byte set iff that byte of v is zero. Exact, unlike the common
+     * (v - 0x01..) & ~v & 0x80.. test, which can flag a 0x01 byte above a zero byte.
+     */
+    private static long zeroBytes(long v) {
+        long t = (v & LOW_7_BITS) + LOW_7_BITS;
+        return ~(t | v | LOW_7_BITS);
+    }
+    
+    private static long getLong(Object base, long offset) {
+        try {
+            return (long) GET_LONG.invokeExact(base, offset);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static byte getByte(Object base, long offset) {
+        try {
+            return (byte) GET_BYTE.invokeExact(base, offset);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static Object loadUnsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+    
+    private static MethodHandle accessor(String name, Class<?> type) {
+        if (UNSAFE == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup()
+                    .findVirtual(UNSAFE.getClass(), name, MethodType.methodType(type, Object.class, long.class))
+                    .bindTo(UNSAFE);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Call a long- or int-valued Unsafe method once, at class initialization
+     *
+     * @return the result, -1 if Unsafe or the method is unavailable
+     */
+    private static long invoke(String name, Class<?> parameterType, Object argument) {
+        if (UNSAFE == null) {
+            return -1;
+        }
+        try {
+            return ((Number) UNSAFE.getClass().getMethod(name, parameterType).invoke(UNSAFE, argument)).longValue();
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+    
+    private static long addressOffset() {
+        try {
+            return invoke("objectFieldOffset", Field.class, Buffer.class.getDeclaredField("address"));
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+}
@@ -2,37 +2,123 @@ package com.audit.counter;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.lib.input.CompressedSplitLineReader;
+import org.apache.hadoop.util.CleanerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Row counter for TextFile (CSV/JSON/plain text)
  * Counts occurrences of the delimiter (default: newline)
+ *
+ * Files larger than the split size are divided into block-aligned byte ranges counted
+ * concurrently with positioned reads. A range counts the delimiters that start inside it,
+ * reading up to delimiter length - 1 bytes past its end, so matches straddling a boundary
+ * are counted exactly once.
+ *
+ * Multi-byte delimiters are matched left to right without overlap (as record separators:
+ * "aaa" holds one "aa" delimiter) by a streaming KMP matcher. Delimiters that can overlap
+ * themselves, such as "aa" or "|@|", make a range's result depend on the bytes before it:
+ * such ranges are scanned from every matcher state they may be entered in (the scans
+ * converge within a few bytes on real data) and chained in file order afterwards.
+ *
+ * Read buffers come from the shared {@link ScanBufferPool}, sized to the range being read.
+ * Single-byte delimiters are read straight into pooled direct buffers and scanned in
+ * place when the stream supports ByteBuffer reads (HDFS, including short-circuit local
+ * reads), skipping the copy into a heap array.
+ *
+ * Local files (file:// paths, including NFS/FUSE mounts) bypass the checksummed
+ * LocalFileSystem stream: single-byte delimiters are counted on memory-mapped segments,
+ * scanned in parallel like splits, and other cases read the raw local file.
+ *
+ * Compressed files (.gz, .bz2, .snappy, .lz4, .zst, .deflate, as registered in
+ * io.compression.codecs) are counted on the decompressed stream. bzip2 is splittable and
+ * is split like MapReduce's LineRecordReader does: at block markers, each split owning
+ * the records that start in it.
  */
 public class TextFileRowCounter implements RowCounter {
     
     private static final Logger LOG = LoggerFactory.getLogger(TextFileRowCounter.class);
     
-    private static final int BUFFER_SIZE = 8 * 1024 * 1024; // 8MB buffer
+    private static final int BUFFER_SIZE = ScanBufferPool.MAX_BUFFER_SIZE; // 8MB buffer
+    
+    /** Decompressor streams hand out at most their internal buffer per read */
+    private static final int COMPRESSED_BUFFER_SIZE = 1024 * 1024;
+    
+    /** DFSInputStream fills a ByteBuffer at most up to the current block/packet per read */
+    private static final int DIRECT_BUFFER_SIZE = 1024 * 1024;
+    
+    /** Largest region mapped at once, also the split size of mapped local files */
+    private static final int MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    /** Smaller local files are cheaper to read than to map */
+    private static final long MIN_MAPPED_LENGTH = 1024 * 1024;
     
     private final Configuration conf;
     private final byte[] delimiterBytes;
+    /** KMP failure function: failure[i] = length of the longest proper border of delimiter[0..i] */
+    private final int[] failure;
+    private final CounterOptions options;
+    private final CompressionCodecFactory codecFactory;
+    private final ByteScanner scanner;
+    private final ScanBufferPool bufferPool;
     
     public TextFileRowCounter(Configuration conf, String delimiter) {
+        this(conf, delimiter, new CounterOptions());
+    }
+    
+    public TextFileRowCounter(Configuration conf, String delimiter, CounterOptions options) {
         this.conf = conf;
         this.delimiterBytes = delimiter.getBytes();
+        this.failure = failureFunction(delimiterBytes);
+        this.options = options;
+        this.codecFactory = new CompressionCodecFactory(conf);
+        this.scanner = ByteScanner.create(options.getScanner());
+        this.bufferPool = options.getBufferPool();
     }
     
     @Override
     public long countRows(Path path) throws IOException {
+        return countRows(path.getFileSystem(conf).getFileStatus(path));
+    }
+    
+    @Override
+    public long countRows(FileStatus status) throws IOException {
+        Path path = status.getPath();
         LOG.debug("Counting rows in TextFile: {}", path);
         
         FileSystem fs = path.getFileSystem(conf);
-        long fileLength = fs.getFileStatus(path).getLen();
+        // Length comes from listing; no getFileStatus round trip per file
+        long fileLength = status.getLen();
         
         // Empty file has 0 rows
         if (fileLength == 0) {
@@ -40,30 +126,46 @@ public class TextFileRowCounter implements RowCounter {
             return 0;
         }
         
+        // Local files are not checksummed on the way in, so skip .crc verification
+        if (fs instanceof LocalFileSystem) {
+            fs = ((LocalFileSystem) fs).getRawFileSystem();
+        }
+        
+        CompressionCodec codec = codecFactory.getCodec(path);
+        if (codec == null && delimiterBytes.length == 1 && fileLength >= MIN_MAPPED_LENGTH
+                && fs instanceof RawLocalFileSystem) {
+            long count = countMapped(((RawLocalFileSystem) fs).pathToFile(path), status);
+            LOG.debug("Local TextFile {} has {} rows", path, count);
+            return count;
+        }
+        if (codec != null) {
+            long count = countCompressed(fs, status, codec);
+            LOG.debug("Compressed TextFile {} has {} rows", path, count);
+            return count;
+        }
+        
+        long splitSize = splitSize(status);
         try (FSDataInputStream in = fs.open(path)) {
-            long count = 0;
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            byte lastByte = 0;
-            
-            if (delimiterBytes.length == 1) {
-                // Single byte delimiter (most common case: \n)
-                byte delimByte = delimiterBytes[0];
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    for (int i = 0; i < bytesRead; i++) {
-                        if (buffer[i] == delimByte) {
-                            count++;
-                        }
-                    }
-                    lastByte = buffer[bytesRead - 1];
-                }
-                // If file doesn't end with delimiter, add 1 for the last line
-                if (lastByte != delimByte) {
-                    count++;
+            long count;
+            if (shouldSplit(fileLength, splitSize)) {
+                if (hasSelfOverlap()) {
+                    count = countBorderedSplits(path, in, fileLength, splitSize);
+                } else if (canReadDirect(in, StreamCapabilities.PREADBYTEBUFFER)) {
+                    count = countSplits(path, fileLength, splitSize, 0,
+                            (start, end, buffer) -> countDirectRange(in, true, start, end, fileLength));
+                } else {
+                    count = countSplits(path, fileLength, splitSize, BUFFER_SIZE,
+                            (start, end, buffer) -> countRange(in, true, start, end, fileLength, buffer));
                 }
+            } else if (canReadDirect(in, StreamCapabilities.READBYTEBUFFER)) {
+                count = countDirectRange(in, false, 0, fileLength, fileLength);
             } else {
-                // Multi-byte delimiter
-                count = countMultiByteDelimiter(in, buffer, fileLength);
+                ByteBuffer buffer = bufferPool.acquire(ScanBufferPool.bufferSize(fileLength), false);
+                try {
+                    count = countRange(in, false, 0, fileLength, fileLength, buffer.array());
+                } finally {
+                    bufferPool.release(buffer);
+                }
             }
             
             LOG.debug("TextFile {} has {} rows", path, count);
@@ -71,92 +173,579 @@ public class TextFileRowCounter implements RowCounter {
         }
     }
     
+    private long countCompressed(FileSystem fs, FileStatus status, CompressionCodec codec) throws IOException {
+        Path path = status.getPath();
+        long splitSize = splitSize(status);
+        // LineReader can miscount a multi-byte delimiter that straddles a bzip2 block
+        // boundary, so only single-byte delimiters are split
+        if (codec instanceof SplittableCompressionCodec && delimiterBytes.length == 1
+                && shouldSplit(status.getLen(), splitSize)) {
+            SplittableCompressionCodec splittable = (SplittableCompressionCodec) codec;
+            return countSplits(path, status.getLen(), splitSize, 0,
+                    (start, end, buffer) -> countCompressedSplit(fs, path, splittable, start, end));
+        }
+        
+        Decompressor decompressor = CodecPool.getDecompressor(codec);
+        ByteBuffer buffer = null;
+        try (InputStream in = codec.createInputStream(fs.open(path), decompressor)) {
+            buffer = bufferPool.acquire(COMPRESSED_BUFFER_SIZE, false);
+            // Decompressed length is unknown: read to the end of the stream
+            return countRange(in, false, 0, Long.MAX_VALUE, Long.MAX_VALUE, buffer.array());
+        } finally {
+            bufferPool.release(buffer);
+            CodecPool.returnDecompressor(decompressor);
+        }
+    }
+    
     /**
-     * Count rows with multi-byte delimiter using sliding window
+     * Count a local file on memory-mapped segments, split across the pool like HDFS files
+     * but in segments no larger than {@link #MAPPED_SEGMENT_SIZE}
      */
-    private long countMultiByteDelimiter(FSDataInputStream in, byte[] buffer, long fileLength) throws IOException {
+    private long countMapped(File file, FileStatus status) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Mapping past the end fails, so a file truncated since listing ends early
+            long length = Math.min(status.getLen(), channel.size());
+            if (length == 0) {
+                return 0;
+            }
+            long splitSize = Math.min(splitSize(status), MAPPED_SEGMENT_SIZE);
+            if (shouldSplit(length, splitSize)) {
+                return countSplits(status.getPath(), length, splitSize, 0,
+                        (start, end, buffer) -> countMappedRange(channel, start, end, length));
+            }
+            return countMappedRange(channel, 0, length, length);
+        }
+    }
+    
+    private long countMappedRange(FileChannel channel, long start, long end, long length) throws IOException {
+        byte delimByte = delimiterBytes[0];
         long count = 0;
-        int bytesRead;
-        byte[] overlap = new byte[delimiterBytes.length - 1];
-        int overlapSize = 0;
-        
-        // Keep a rolling window of the last delimiterBytes.length bytes across buffer boundaries
-        byte[] tail = new byte[delimiterBytes.length];
-        int tailSize = 0;
-        
-        while ((bytesRead = in.read(buffer)) != -1) {
-            // Check overlap from previous buffer
-            if (overlapSize > 0) {
-                byte[] combined = new byte[overlapSize + Math.min(bytesRead, delimiterBytes.length - 1)];
-                System.arraycopy(overlap, 0, combined, 0, overlapSize);
-                System.arraycopy(buffer, 0, combined, overlapSize, combined.length - overlapSize);
-                
-                for (int i = 0; i <= combined.length - delimiterBytes.length; i++) {
-                    if (matchesDelimiter(combined, i)) {
-                        count++;
+        long pos = start;
+        byte lastByte = delimByte;
+        while (pos < end) {
+            int size = (int) Math.min(MAPPED_SEGMENT_SIZE, end - pos);
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            try {
+                count += scanner.count(segment, 0, size, delimByte);
+                lastByte = segment.get(size - 1);
+            } finally {
+                unmap(segment);
+            }
+            pos += size;
+        }
+        // If file doesn't end with delimiter, add 1 for the last line
+        if (end >= length && lastByte != delimByte) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Release a mapping now instead of at some later GC: with little heap churn, mappings of
+     * many files would otherwise pile up until the process runs out of map areas
+     */
+    private static void unmap(MappedByteBuffer segment) {
+        if (!CleanerUtil.UNMAP_SUPPORTED) {
+            return;
+        }
+        try {
+            CleanerUtil.getCleaner().freeBuffer(segment);
+        } catch (IOException e) {
+            LOG.debug("Failed to unmap segment, left to GC", e);
+        }
+    }
+    
+    /**
+     * Count the records of one split of a splittable compressed file, following
+     * LineRecordReader: skip the first record unless the split starts the file, then read
+     * records while the compressed position is within the split
+     */
+    private long countCompressedSplit(FileSystem fs, Path path, SplittableCompressionCodec codec,
+                                      long start, long end) throws IOException {
+        Decompressor decompressor = CodecPool.getDecompressor(codec);
+        try (FSDataInputStream raw = fs.open(path)) {
+            SplitCompressionInputStream in = codec.createInputStream(raw, decompressor, start, end,
+                    SplittableCompressionCodec.READ_MODE.BYBLOCK);
+            CompressedSplitLineReader reader = new CompressedSplitLineReader(in, conf, delimiterBytes);
+            try {
+                // maxLineLength 0: records are consumed without being copied
+                Text ignored = new Text();
+                if (in.getAdjustedStart() != 0) {
+                    reader.readLine(ignored, 0, Integer.MAX_VALUE);
+                }
+                long count = 0;
+                long splitEnd = in.getAdjustedEnd();
+                while (in.getPos() <= splitEnd || reader.needAdditionalRecordAfterSplit()) {
+                    if (reader.readLine(ignored, 0, Integer.MAX_VALUE) == 0) {
+                        break;
                     }
+                    count++;
                 }
+                return count;
+            } finally {
+                reader.close();
             }
-            
-            // Search in current buffer
-            for (int i = 0; i <= bytesRead - delimiterBytes.length; i++) {
-                if (matchesDelimiter(buffer, i)) {
-                    count++;
+        } finally {
+            CodecPool.returnDecompressor(decompressor);
+        }
+    }
+    
+    /**
+     * Configured split size rounded up to whole blocks, so each range maps onto few datanodes
+     */
+    private long splitSize(FileStatus status) {
+        long size = options.getSplitSize();
+        long blockSize = status.getBlockSize();
+        if (size <= 0 || blockSize <= 0) {
+            return size;
+        }
+        return (size + blockSize - 1) / blockSize * blockSize;
+    }
+    
+    private boolean shouldSplit(long fileLength, long splitSize) {
+        return splitSize > 0 && fileLength > splitSize && options.getSplitExecutor() != null
+                && options.getSplitParallelism() > 1;
+    }
+    
+    /**
+     * @return true if a proper prefix of the delimiter is also a suffix (e.g. "aa", "abab"),
+     *         so two occurrences can overlap
+     */
+    private boolean hasSelfOverlap() {
+        return failure[failure.length - 1] > 0;
+    }
+    
+    private static int[] failureFunction(byte[] pattern) {
+        int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = failure[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+    
+    private long countSplits(Path path, long fileLength, long splitSize, int bufferSize, RangeCounter counter)
+            throws IOException {
+        SplitJob job = new SplitJob(fileLength, splitSize, bufferSize, counter);
+        int helpers = Math.min(job.splits, options.getSplitParallelism()) - 1;
+        LOG.debug("Counting TextFile {} in {} splits of {} bytes with {} helpers", path, job.splits, splitSize, helpers);
+        
+        ExecutorService executor = options.getSplitExecutor();
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(job::work);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        // The calling thread claims splits too, so the file completes even if no helper ever runs
+        job.work();
+        return job.await();
+    }
+    
+    /**
+     * Count the delimiters starting in [start, end). The range that ends the file (or
+     * reaches the end of the stream) also counts a last line without a trailing delimiter.
+     *
+     * @param positioned use positioned reads (safe to share the stream between splits)
+     *                   instead of sequential reads from the current position
+     * @param length total length, or Long.MAX_VALUE to read until end of stream
+     */
+    private long countRange(InputStream in, boolean positioned, long start, long end, long length,
+                            byte[] buffer) throws IOException {
+        if (delimiterBytes.length == 1) {
+            return countSingleByteRange(in, positioned, start, end, length, buffer);
+        }
+        return countMultiByteRange(in, positioned, start, end, length, buffer);
+    }
+    
+    private long countSingleByteRange(InputStream in, boolean positioned, long start, long end,
+                                      long length, byte[] buffer) throws IOException {
+        // Single byte delimiter (most common case: \n)
+        byte delimByte = delimiterBytes[0];
+        long count = 0;
+        long pos = start;
+        byte lastByte = delimByte;
+        boolean eof = false;
+        while (pos < end) {
+            int bytesRead = read(in, positioned, pos, buffer, 0, (int) Math.min(buffer.length, end - pos));
+            if (bytesRead < 0) {
+                eof = true;
+                break;
+            }
+            count += scanner.count(buffer, 0, bytesRead, delimByte);
+            if (bytesRead > 0) {
+                lastByte = buffer[bytesRead - 1];
+            }
+            pos += bytesRead;
+        }
+        // If file doesn't end with delimiter, add 1 for the last line
+        if ((end >= length || eof) && lastByte != delimByte) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Single-byte delimiter count of [start, end) read into a pooled direct buffer, which
+     * the stream fills without an intermediate heap copy and the scanner reads in place
+     */
+    private long countDirectRange(FSDataInputStream in, boolean positioned, long start, long end,
+                                  long length) throws IOException {
+        byte delimByte = delimiterBytes[0];
+        long count = 0;
+        long pos = start;
+        byte lastByte = delimByte;
+        boolean eof = false;
+        ByteBuffer buffer = bufferPool.acquire(
+                (int) Math.min(DIRECT_BUFFER_SIZE, ScanBufferPool.bufferSize(end - start)), true);
+        try {
+            while (pos < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+                int bytesRead = positioned ? in.read(pos, buffer) : in.read(buffer);
+                if (bytesRead < 0) {
+                    eof = true;
+                    break;
                 }
+                count += scanner.count(buffer, 0, bytesRead, delimByte);
+                if (bytesRead > 0) {
+                    lastByte = buffer.get(bytesRead - 1);
+                }
+                pos += bytesRead;
             }
-            
-            // Save overlap for next iteration
-            overlapSize = Math.min(delimiterBytes.length - 1, bytesRead);
-            System.arraycopy(buffer, bytesRead - overlapSize, overlap, 0, overlapSize);
-            
-            // Update rolling tail window (last delimiterBytes.length bytes of the entire stream)
-            tailSize = updateTail(tail, tailSize, buffer, bytesRead);
+        } finally {
+            bufferPool.release(buffer);
+        }
+        // If file doesn't end with delimiter, add 1 for the last line
+        if ((end >= length || eof) && lastByte != delimByte) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * @param capability {@link StreamCapabilities#READBYTEBUFFER} for sequential reads,
+     *                   {@link StreamCapabilities#PREADBYTEBUFFER} for positioned reads
+     */
+    private boolean canReadDirect(FSDataInputStream in, String capability) {
+        return delimiterBytes.length == 1 && in.hasCapability(capability);
+    }
+    
+    /**
+     * Count rows with multi-byte delimiter using a streaming KMP matcher: linear in the
+     * input, with the partial match carried across reads instead of copying bytes. While
+     * nothing is matched only the first delimiter byte is compared.
+     */
+    private long countMultiByteRange(InputStream in, boolean positioned, long start, long end,
+                                     long length, byte[] buffer) throws IOException {
+        int m = delimiterBytes.length;
+        byte first = delimiterBytes[0];
+        long readEnd = end >= length ? length : Math.min(end + m - 1, length);
+        // The last range must see the file's final m bytes even when it is shorter than that
+        long pos = end >= length ? Math.max(0, Math.min(start, length - m)) : start;
+        long readStart = pos;
+        long count = 0;
+        int matched = 0;
+        long lastMatchEnd = -1;
+        boolean eof = false;
+        while (pos < readEnd) {
+            int bytesRead = read(in, positioned, pos, buffer, 0, (int) Math.min(buffer.length, readEnd - pos));
+            if (bytesRead < 0) {
+                eof = true;
+                break;
+            }
+            for (int i = 0; i < bytesRead; i++) {
+                byte c = buffer[i];
+                if (matched == 0) {
+                    if (c == first) {
+                        matched = 1;
+                    }
+                    continue;
+                }
+                while (matched > 0 && c != delimiterBytes[matched]) {
+                    matched = failure[matched - 1];
+                }
+                if (c == delimiterBytes[matched] && ++matched == m) {
+                    long matchEnd = pos + i + 1;
+                    // Reading stops m - 1 bytes past end, so every match found starts before end
+                    if (matchEnd - m >= start) {
+                        count++;
+                    }
+                    lastMatchEnd = matchEnd;
+                    matched = 0;
+                }
+            }
+            pos += bytesRead;
         }
         
         // If file doesn't end with delimiter, add 1 for the last line
-        if (fileLength > 0 && !(tailSize == delimiterBytes.length && matchesDelimiter(tail, 0))) {
+        if ((end >= length || eof) && pos > readStart && lastMatchEnd != pos) {
             count++;
         }
+        return count;
+    }
+    
+    /**
+     * Split count of a self-overlapping delimiter: each range reports its outcome for every
+     * entry state, then the ranges are chained from state 0 at the start of the file
+     */
+    private long countBorderedSplits(Path path, FSDataInputStream in, long fileLength, long splitSize)
+            throws IOException {
+        RangeTransfer[] ranges = new RangeTransfer[(int) ((fileLength + splitSize - 1) / splitSize)];
+        countSplits(path, fileLength, splitSize, BUFFER_SIZE, (start, end, buffer) -> {
+            // Published to this thread by the split job's latch
+            ranges[(int) (start / splitSize)] = countBorderedRange(in, start, end, buffer);
+            return 0;
+        });
         
+        int m = delimiterBytes.length;
+        int state = 0;
+        long count = 0;
+        for (RangeTransfer range : ranges) {
+            count += range.count[state];
+            state = range.exit[state];
+        }
+        // If file doesn't end with delimiter, add 1 for the last line
+        if (state != m) {
+            count++;
+        }
         return count;
     }
     
     /**
-     * Update a fixed-size rolling tail buffer with new bytes.
-     * Keeps the last {@code tail.length} bytes seen so far.
-     *
-     * @return updated tailSize
+     * Run the matcher over [start, end) once per entry state. Entries whose scans reach the
+     * same state at the same byte share the rest of the scan, so after the first few bytes
+     * (a run of "a" for "aa" being the exception) only one scan is left.
      */
-    private int updateTail(byte[] tail, int tailSize, byte[] src, int srcLen) {
-        int capacity = tail.length;
-        if (srcLen >= capacity) {
-            // Just keep the last 'capacity' bytes from src
-            System.arraycopy(src, srcLen - capacity, tail, 0, capacity);
-            return capacity;
+    private RangeTransfer countBorderedRange(InputStream in, long start, long end, byte[] buffer)
+            throws IOException {
+        int states = delimiterBytes.length + 1;
+        // Scan t: current state and delimiters counted; entry s follows scan owner[s]
+        int[] state = new int[states];
+        long[] counted = new long[states];
+        boolean[] live = new boolean[states];
+        int[] owner = new int[states];
+        long[] offset = new long[states];
+        for (int s = 0; s < states; s++) {
+            state[s] = s;
+            live[s] = true;
+            owner[s] = s;
+        }
+        int scans = states;
+        int survivor = 0;
+        long pos = start;
+        while (pos < end) {
+            int bytesRead = read(in, true, pos, buffer, 0, (int) Math.min(buffer.length, end - pos));
+            if (bytesRead < 0) {
+                // Truncated since listing: later ranges read nothing and pass the state on
+                break;
+            }
+            int i = 0;
+            for (; i < bytesRead && scans > 1; i++) {
+                for (int t = 0; t < states; t++) {
+                    if (live[t]) {
+                        state[t] = next(state[t], buffer[i]);
+                        if (state[t] == delimiterBytes.length) {
+                            counted[t]++;
+                        }
+                    }
+                }
+                scans -= merge(state, counted, live, owner, offset);
+            }
+            if (scans == 1) {
+                while (!live[survivor]) {
+                    survivor++;
+                }
+                if (i < bytesRead) {
+                    countBorderedTail(buffer, i, bytesRead, state, counted, survivor);
+                }
+            }
+            pos += bytesRead;
         }
         
-        // Need to append src to existing tail content (may need to drop older bytes)
-        int newSize = Math.min(capacity, tailSize + srcLen);
-        int bytesToDrop = Math.max(0, tailSize + srcLen - capacity);
-        
-        // Shift existing bytes left by bytesToDrop
-        if (bytesToDrop > 0 && tailSize > 0) {
-            System.arraycopy(tail, bytesToDrop, tail, 0, tailSize - bytesToDrop);
-            tailSize = tailSize - bytesToDrop;
+        RangeTransfer range = new RangeTransfer(states);
+        for (int s = 0; s < states; s++) {
+            range.count[s] = offset[s] + counted[owner[s]];
+            range.exit[s] = state[owner[s]];
         }
+        return range;
+    }
+    
+    /**
+     * Continue the one scan left over buffer[from, to), as countMultiByteRange does
+     */
+    private void countBorderedTail(byte[] buffer, int from, int to, int[] state, long[] counted, int scan) {
+        int m = delimiterBytes.length;
+        byte first = delimiterBytes[0];
+        int matched = state[scan] == m ? 0 : state[scan];
+        long count = counted[scan];
+        int lastMatch = -1;
+        for (int i = from; i < to; i++) {
+            byte c = buffer[i];
+            if (matched == 0) {
+                if (c == first) {
+                    matched = 1;
+                }
+                continue;
+            }
+            while (matched > 0 && c != delimiterBytes[matched]) {
+                matched = failure[matched - 1];
+            }
+            if (c == delimiterBytes[matched] && ++matched == m) {
+                count++;
+                lastMatch = i;
+                matched = 0;
+            }
+        }
+        state[scan] = lastMatch == to - 1 ? m : matched;
+        counted[scan] = count;
+    }
+    
+    /**
+     * Fold scans that reached the same state into one, moving their entries to it
+     *
+     * @return number of scans removed
+     */
+    private static int merge(int[] state, long[] counted, boolean[] live, int[] owner, long[] offset) {
+        int removed = 0;
+        for (int t = 0; t < state.length; t++) {
+            if (!live[t]) {
+                continue;
+            }
+            for (int u = t + 1; u < state.length; u++) {
+                if (live[u] && state[u] == state[t]) {
+                    for (int s = 0; s < owner.length; s++) {
+                        if (owner[s] == u) {
+                            offset[s] += counted[u] - counted[t];
+                            owner[s] = t;
+                        }
+                    }
+                    live[u] = false;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Matcher step of a range scan. States 0..m-1 are KMP match lengths; m means a
+     * delimiter ended on this byte and continues like 0.
+     */
+    private int next(int state, byte c) {
+        int k = state == delimiterBytes.length ? 0 : state;
+        while (k > 0 && c != delimiterBytes[k]) {
+            k = failure[k - 1];
+        }
+        if (c == delimiterBytes[k]) {
+            k++;
+        }
+        return k;
+    }
+    
+    private static int read(InputStream in, boolean positioned, long position,
+                            byte[] buffer, int offset, int length) throws IOException {
+        return positioned
+                ? ((PositionedReadable) in).read(position, buffer, offset, length)
+                : in.read(buffer, offset, length);
+    }
+    
+    /**
+     * Delimiters counted in a range and the matcher state after it, indexed by the state
+     * the range is entered in (see {@link #next})
+     */
+    private static final class RangeTransfer {
+        final long[] count;
+        final int[] exit;
         
-        // Append new bytes
-        System.arraycopy(src, 0, tail, tailSize, srcLen);
-        return newSize;
+        RangeTransfer(int states) {
+            this.count = new long[states];
+            this.exit = new int[states];
+        }
+    }
+    
+    /**
+     * Counts one split [start, end) of a file
+     */
+    private interface RangeCounter {
+        long count(long start, long end, byte[] buffer) throws IOException;
     }
     
-    private boolean matchesDelimiter(byte[] buffer, int offset) {
-        for (int i = 0; i < delimiterBytes.length; i++) {
-            if (buffer[offset + i] != delimiterBytes[i]) {
-                return false;
+    /**
+     * Splits of one file. Workers (the file's own thread and any helpers on the pool) claim
+     * splits until none are left; the owner then only waits for splits already being counted.
+     */
+    private final class SplitJob {
+        private final long fileLength;
+        private final long splitSize;
+        private final int bufferSize;
+        private final RangeCounter counter;
+        private final int splits;
+        private final AtomicInteger nextSplit = new AtomicInteger();
+        private final AtomicLong count = new AtomicLong();
+        private final CountDownLatch done;
+        private volatile IOException error;
+        
+        /**
+         * @param bufferSize size of each worker's read buffer, 0 if the counter reads on its own
+         */
+        SplitJob(long fileLength, long splitSize, int bufferSize, RangeCounter counter) {
+            this.fileLength = fileLength;
+            this.splitSize = splitSize;
+            this.bufferSize = bufferSize;
+            this.counter = counter;
+            this.splits = (int) ((fileLength + splitSize - 1) / splitSize);
+            this.done = new CountDownLatch(splits);
+        }
+        
+        void work() {
+            ByteBuffer buffer = null;
+            int split;
+            try {
+                while ((split = nextSplit.getAndIncrement()) < splits) {
+                    try {
+                        // After a failure the remaining splits are only marked done
+                        if (error == null) {
+                            if (buffer == null && bufferSize > 0) {
+                                buffer = bufferPool.acquire(
+                                        ScanBufferPool.bufferSize(Math.min(bufferSize, splitSize)), false);
+                            }
+                            long start = split * splitSize;
+                            long end = Math.min(start + splitSize, fileLength);
+                            count.addAndGet(counter.count(start, end, buffer == null ? null : buffer.array()));
+                        }
+                    } catch (IOException e) {
+                        error = e;
+                    } catch (RuntimeException e) {
+                        error = new IOException(e.getMessage(), e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            } finally {
+                // Released before the owner waits, so no thread holds memory while blocked
+                bufferPool.release(buffer);
+            }
+        }
+        
+        long await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while counting splits");
+            }
+            if (error != null) {
+                throw error;
             }
+            return count.get();
         }
-        return true;
     }
 }
-
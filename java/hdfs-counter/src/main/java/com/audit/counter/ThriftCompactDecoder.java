@@ -0,0 +1,200 @@
+package com.audit.counter;
+
+/**
+ * Minimal Thrift compact protocol decoder: walks struct fields by id and type and skips
+ * any value it is not asked to read, so a few fields can be pulled out of a large struct
+ * without materializing the rest
+ */
+final class ThriftCompactDecoder {
+    
+    static final int TYPE_STOP = 0;
+    static final int TYPE_BOOLEAN_TRUE = 1;
+    static final int TYPE_BOOLEAN_FALSE = 2;
+    static final int TYPE_BYTE = 3;
+    static final int TYPE_I16 = 4;
+    static final int TYPE_I32 = 5;
+    static final int TYPE_I64 = 6;
+    static final int TYPE_DOUBLE = 7;
+    static final int TYPE_BINARY = 8;
+    static final int TYPE_LIST = 9;
+    static final int TYPE_SET = 10;
+    static final int TYPE_MAP = 11;
+    static final int TYPE_STRUCT = 12;
+    
+    private static final int MAX_DEPTH = 64;
+    
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+    
+    /** Last field id of each enclosing struct; compact field headers are deltas */
+    private final short[] lastFieldIds = new short[MAX_DEPTH];
+    private int depth;
+    private short fieldId;
+    private int elementType;
+    
+    ThriftCompactDecoder(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+    
+    void readStructBegin() throws FooterFormatException {
+        if (depth == MAX_DEPTH) {
+            throw new FooterFormatException("Thrift struct nesting too deep");
+        }
+        lastFieldIds[depth++] = fieldId;
+        fieldId = 0;
+    }
+    
+    void readStructEnd() {
+        fieldId = lastFieldIds[--depth];
+    }
+    
+    /**
+     * Read the next field header of the current struct
+     *
+     * @return field type, or {@link #TYPE_STOP} at the end of the struct
+     */
+    int readFieldBegin() throws FooterFormatException {
+        int header = readByte();
+        int type = header & 0x0f;
+        if (type == TYPE_STOP) {
+            return TYPE_STOP;
+        }
+        int delta = header >>> 4;
+        fieldId = delta != 0 ? (short) (fieldId + delta) : (short) zigzag(readVarint());
+        return type;
+    }
+    
+    /**
+     * @return id of the field whose header was read last
+     */
+    int fieldId() {
+        return fieldId;
+    }
+    
+    /**
+     * Read a list or set header
+     *
+     * @return number of elements; their type is available from {@link #elementType()}
+     */
+    int readListBegin() throws FooterFormatException {
+        int header = readByte();
+        elementType = header & 0x0f;
+        int size = header >>> 4;
+        if (size == 15) {
+            size = (int) readVarint();
+        }
+        if (size < 0) {
+            throw new FooterFormatException("Invalid Thrift list size: " + size);
+        }
+        return size;
+    }
+    
+    int elementType() {
+        return elementType;
+    }
+    
+    int readI32() throws FooterFormatException {
+        return (int) zigzag(readVarint());
+    }
+    
+    long readI64() throws FooterFormatException {
+        return zigzag(readVarint());
+    }
+    
+    /**
+     * Skip a value of the given type, including nested containers and structs
+     */
+    void skip(int type) throws FooterFormatException {
+        switch (type) {
+            case TYPE_BOOLEAN_TRUE:
+            case TYPE_BOOLEAN_FALSE:
+                // Field booleans live in the header; only list elements take a byte
+                return;
+            case TYPE_BYTE:
+                advance(1);
+                return;
+            case TYPE_I16:
+            case TYPE_I32:
+            case TYPE_I64:
+                readVarint();
+                return;
+            case TYPE_DOUBLE:
+                advance(8);
+                return;
+            case TYPE_BINARY:
+                advance(readVarint());
+                return;
+            case TYPE_LIST:
+            case TYPE_SET: {
+                int size = readListBegin();
+                int type0 = elementType;
+                for (int i = 0; i < size; i++) {
+                    skipElement(type0);
+                }
+                return;
+            }
+            case TYPE_MAP: {
+                int size = (int) readVarint();
+                if (size > 0) {
+                    int types = readByte();
+                    for (int i = 0; i < size; i++) {
+                        skipElement(types >>> 4);
+                        skipElement(types & 0x0f);
+                    }
+                }
+                return;
+            }
+            case TYPE_STRUCT:
+                readStructBegin();
+                int fieldType;
+                while ((fieldType = readFieldBegin()) != TYPE_STOP) {
+                    skip(fieldType);
+                }
+                readStructEnd();
+                return;
+            default:
+                throw new FooterFormatException("Unsupported Thrift type: " + type);
+        }
+    }
+    
+    private void skipElement(int type) throws FooterFormatException {
+        if (type == TYPE_BOOLEAN_TRUE || type == TYPE_BOOLEAN_FALSE) {
+            advance(1);
+        } else {
+            skip(type);
+        }
+    }
+    
+    private int readByte() throws FooterFormatException {
+        if (pos >= limit) {
+            throw new FooterFormatException("Truncated Thrift data");
+        }
+        return buf[pos++] & 0xff;
+    }
+    
+    private long readVarint() throws FooterFormatException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new FooterFormatException("Malformed Thrift varint");
+    }
+    
+    private static long zigzag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+    
+    private void advance(long n) throws FooterFormatException {
+        if (n < 0 || n > limit - pos) {
+            throw new FooterFormatException("Truncated Thrift field");
+        }
+        pos += (int) n;
+    }
+}
@@ -0,0 +1,143 @@
+package com.audit.engine;
+
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.RetriableException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * AIMD limit on the number of files counted at once, shared by all requests of an engine.
+ *
+ * Read attempts are grouped into windows of about one limit's worth of files. After each
+ * window their average latency is compared with a baseline (the lowest recent window
+ * average, allowed to creep up slowly so it follows a changing workload):
+ * <ul>
+ *   <li>latency above {@link #LATENCY_TOLERANCE} times the baseline, or any overload error
+ *       (RetriableException, StandbyException, socket timeout), cuts the limit by
+ *       {@link #BACKOFF};</li>
+ *   <li>otherwise, if the window actually used the whole limit, it grows: doubling until
+ *       the first cut (slow start), then by one per window.</li>
+ * </ul>
+ * The limit stays within [min, max]; max should not exceed what the pool can run at once.
+ */
+public class ConcurrencyLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+    
+    private static final double BACKOFF = 0.7;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 1.02;
+    private static final int MIN_WINDOW = 8;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private boolean slowStart = true;
+    private int inUse;
+    
+    private int samples;
+    private long latencySum;
+    private boolean overloadSeen;
+    private int peakInUse;
+    private double baseline = Double.NaN;
+    
+    /**
+     * @param initial starting limit
+     * @param min lowest limit after backing off
+     * @param max highest limit, normally the pool size
+     */
+    public ConcurrencyLimiter(int initial, int min, int max) {
+        this.minLimit = Math.max(1, min);
+        this.maxLimit = Math.max(minLimit, max);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initial));
+    }
+    
+    /**
+     * Wait until fewer than limit files are being counted, then take a slot
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inUse >= (int) limit) {
+            wait();
+        }
+        inUse++;
+        peakInUse = Math.max(peakInUse, inUse);
+    }
+    
+    /**
+     * Record one attempt at reading a file. Retried files report each attempt, so backoff
+     * sleeps between attempts never count as latency.
+     *
+     * @param latencyNanos time from start to end of the attempt
+     * @param error failure of the attempt, or null
+     */
+    public synchronized void record(long latencyNanos, Throwable error) {
+        samples++;
+        latencySum += latencyNanos;
+        overloadSeen |= error != null && isOverload(error);
+        if (samples >= Math.max(MIN_WINDOW, (int) limit)) {
+            adjust();
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Free a slot once its file is done, or if it never ran
+     */
+    public synchronized void release() {
+        inUse--;
+        notifyAll();
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    private void adjust() {
+        double average = (double) latencySum / samples;
+        if (Double.isNaN(baseline) || average < baseline) {
+            baseline = average;
+        } else {
+            baseline *= BASELINE_DRIFT;
+        }
+        
+        double previous = limit;
+        if (overloadSeen || average > baseline * LATENCY_TOLERANCE) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            slowStart = false;
+        } else if (peakInUse >= (int) limit) {
+            limit = Math.min(maxLimit, slowStart ? limit * 2 : limit + 1);
+        }
+        if ((int) limit != (int) previous) {
+            LOG.debug("Concurrency limit {} -> {} (window avg {} ms, baseline {} ms, overload: {})",
+                    (int) previous, (int) limit, Math.round(average / 1e6), Math.round(baseline / 1e6), overloadSeen);
+        }
+        
+        samples = 0;
+        latencySum = 0;
+        overloadSeen = false;
+        peakInUse = inUse;
+    }
+    
+    /**
+     * @return true for errors that mean the NameNode or a DataNode is overloaded or failing
+     *         over, rather than a problem with the file
+     */
+    static boolean isOverload(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof RetriableException || e instanceof StandbyException
+                    || e instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (e instanceof RemoteException) {
+                String className = ((RemoteException) e).getClassName();
+                if (RetriableException.class.getName().equals(className)
+                        || StandbyException.class.getName().equals(className)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
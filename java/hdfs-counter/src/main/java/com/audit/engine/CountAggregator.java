@@ -0,0 +1,155 @@
+package com.audit.engine;
+
+import com.audit.model.CountResult;
+import com.audit.model.FileError;
+import com.audit.model.FileMetadata;
+import com.audit.model.RunMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running totals for one request.
+ * Counting tasks add their file as soon as it completes, so no per-file results are kept
+ * unless the request asked for a metadata report without a listener to stream them to.
+ * At most {@link #MAX_REPORTED_ERRORS} errors are kept; the rest are only counted.
+ * Per-file latencies go into a histogram for the run metrics.
+ */
+class CountAggregator {
+    
+    static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private final FileResultListener listener;
+    private int fileCount;
+    private int successCount;
+    private long totalRows;
+    private long totalSize;
+    private final List<FileError> errors = new ArrayList<>();
+    private List<FileMetadata> files;
+    private int errorCount;
+    
+    private final long startNanos = System.nanoTime();
+    private long listingDoneNanos;
+    private long firstSubmitNanos;
+    private long lastDoneNanos;
+    private long fileTimeNanos;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    
+    /**
+     * @param listener receives every file result as it completes, or null
+     */
+    CountAggregator(FileResultListener listener) {
+        this.listener = listener;
+    }
+    
+    synchronized void addFile() {
+        if (fileCount++ == 0) {
+            firstSubmitNanos = System.nanoTime();
+        }
+    }
+    
+    synchronized void listingDone() {
+        listingDoneNanos = System.nanoTime();
+    }
+    
+    /**
+     * Record how long one file took to count, successful or not
+     */
+    void recordLatency(long nanos) {
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        synchronized (this) {
+            fileTimeNanos += nanos;
+            lastDoneNanos = System.nanoTime();
+        }
+    }
+    
+    private synchronized void addSuccess(long rowCount, long fileSize) {
+        totalRows += rowCount;
+        totalSize += fileSize;
+        successCount++;
+    }
+    
+    /**
+     * Add a counted file; its metadata goes to the listener, or into the result when the
+     * request asked for a metadata report
+     */
+    void addFileResult(FileMetadata metadata, boolean keep) {
+        if (listener != null) {
+            listener.onFile(metadata);
+        }
+        synchronized (this) {
+            addSuccess(metadata.getRowCount(), metadata.getSizeBytes());
+            if (keep && listener == null) {
+                if (files == null) {
+                    files = new ArrayList<>();
+                }
+                files.add(metadata);
+            }
+        }
+    }
+    
+    void addError(String file, String error) {
+        addError(new FileError(file, error));
+    }
+    
+    void addError(FileError fileError) {
+        if (listener != null) {
+            listener.onError(fileError);
+        }
+        synchronized (this) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(fileError);
+            }
+        }
+    }
+    
+    synchronized CountResult toResult(String basePath, long duration) {
+        // Determine status
+        String status;
+        if (errorCount == 0) {
+            status = "success";
+        } else if (successCount > 0) {
+            status = "partial";
+        } else {
+            status = "failed";
+        }
+        
+        CountResult result = new CountResult();
+        result.setPath(basePath);
+        result.setRowCount(totalRows);
+        result.setFileCount(fileCount);
+        result.setSuccessFileCount(successCount);
+        result.setTotalSizeBytes(totalSize);
+        result.setStatus(status);
+        result.setDurationMs(duration);
+        result.setErrors(new ArrayList<>(errors));
+        result.setErrorCount(errorCount);
+        if (files != null) {
+            result.setFiles(new ArrayList<>(files));
+        }
+        result.setMetrics(toMetrics(duration));
+        return result;
+    }
+    
+    private RunMetrics toMetrics(long duration) {
+        RunMetrics metrics = new RunMetrics();
+        long listingEnd = listingDoneNanos != 0 ? listingDoneNanos : System.nanoTime();
+        metrics.setListingMs(TimeUnit.NANOSECONDS.toMillis(listingEnd - startNanos));
+        if (fileCount > 0) {
+            metrics.setCountingMs(TimeUnit.NANOSECONDS.toMillis(Math.max(0, lastDoneNanos - firstSubmitNanos)));
+        }
+        metrics.setFileTimeMs(TimeUnit.NANOSECONDS.toMillis(fileTimeNanos));
+        metrics.setFilesPerSecond(duration > 0 ? Math.round(fileCount * 1000_000.0 / duration) / 1000.0 : 0);
+        metrics.setLatencyP50Ms(millis(latencies.getValueAtPercentile(50)));
+        metrics.setLatencyP95Ms(millis(latencies.getValueAtPercentile(95)));
+        metrics.setLatencyP99Ms(millis(latencies.getValueAtPercentile(99)));
+        metrics.setLatencyMaxMs(millis(latencies.getMaxValue()));
+        return metrics;
+    }
+    
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
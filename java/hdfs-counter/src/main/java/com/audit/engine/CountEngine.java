@@ -0,0 +1,419 @@
+package com.audit.engine;
+
+import com.audit.counter.CounterFactory;
+import com.audit.counter.CounterOptions;
+import com.audit.counter.RowCounter;
+import com.audit.model.CountRequest;
+import com.audit.model.CountResult;
+import com.audit.model.FileError;
+import com.audit.model.FileMetadata;
+import com.audit.model.RunMetrics;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.GlobalStorageStatistics;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StorageStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Listing and counting engine.
+ * Holds the Hadoop configuration and the counting thread pool, so one instance can
+ * serve a single CLI invocation or many requests in serve mode.
+ */
+public class CountEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(CountEngine.class);
+    
+    private static final String DEFAULT_DELIMITER = "\n";
+    
+    /** Listed files waiting to be submitted */
+    private static final int QUEUE_CAPACITY = 1000;
+    
+    /** Files submitted to the pool but not yet counted, per request */
+    private static final int MAX_IN_FLIGHT = 1000;
+    
+    private static final long POLL_INTERVAL_MS = 20;
+    
+    /** FileSystem.Statistics keys reported in the run metrics */
+    private static final String[] READ_STATISTICS = {"bytesRead", "bytesReadLocalHost", "readOps", "largeReadOps"};
+    
+    private final Configuration conf;
+    private final ExecutorService executor;
+    private final FileLister lister;
+    private final CounterOptions counterOptions;
+    
+    /**
+     * @param conf Hadoop configuration
+     * @param executor counting thread pool, owned by the caller
+     * @param lister directory lister
+     */
+    public CountEngine(Configuration conf, ExecutorService executor, FileLister lister) {
+        this(conf, executor, lister, new CounterOptions());
+    }
+    
+    /**
+     * @param conf Hadoop configuration
+     * @param executor counting thread pool, owned by the caller
+     * @param lister directory lister
+     * @param counterOptions footer cache and text split settings shared by all requests
+     */
+    public CountEngine(Configuration conf, ExecutorService executor, FileLister lister,
+                       CounterOptions counterOptions) {
+        this.conf = conf;
+        this.executor = executor;
+        this.lister = lister;
+        this.counterOptions = counterOptions;
+    }
+    
+    /**
+     * Count rows for a single request. Never throws; failures are reported in the result.
+     */
+    public CountResult count(CountRequest request) {
+        return count(request, null);
+    }
+    
+    /**
+     * Count rows for a single request, passing each file's outcome to {@code listener} as
+     * soon as it is known. Per-file metadata is then streamed instead of kept in the result.
+     * Never throws; failures are reported in the result.
+     */
+    public CountResult count(CountRequest request, FileResultListener listener) {
+        EngineMetrics metrics = counterOptions.getMetrics();
+        if (metrics != null) {
+            metrics.requestStarted();
+        }
+        CountResult result = null;
+        try {
+            try {
+                result = doCount(request, listener);
+            } catch (RuntimeException e) {
+                LOG.error("Unexpected error counting path: {}", request.getPath(), e);
+                result = createFailedResult(request.getPath() == null ? "" : request.getPath(), 0,
+                        "Unexpected error: " + e);
+            }
+            result.setJobId(request.getJobId());
+            return result;
+        } finally {
+            if (metrics != null) {
+                metrics.requestFinished(result == null ? null : result.getStatus());
+            }
+        }
+    }
+    
+    private CountResult doCount(CountRequest request, FileResultListener listener) {
+        long startTime = System.currentTimeMillis();
+        
+        String path = request.getPath();
+        if (path == null || path.isEmpty() || request.getFormat() == null) {
+            return createFailedResult(path == null ? "" : path, 0, "Both path and format are required");
+        }
+        String format = request.getFormat().toLowerCase();
+        String delimiter = normalizeDelimiter(request.getDelimiter());
+        
+        LOG.info("Starting row count for path: {}, format: {}", path, format);
+        
+        // Validate format
+        if (!isValidFormat(format)) {
+            return createFailedResult(path, System.currentTimeMillis() - startTime,
+                    "Invalid format: " + format + ". Supported formats: orc, parquet, textfile");
+        }
+        
+        RowCounter counter = CounterFactory.createCounter(format, conf, delimiter, counterOptions);
+        CountAggregator aggregator = new CountAggregator(listener);
+        boolean metadataReport = request.isMetadataReport() || counterOptions.isMetadataReport();
+        
+        // Listing streams files into a bounded queue while the pool is already counting
+        BlockingQueue<FileStatus> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        CompletableFuture<Void> listing;
+        FileSystem fs;
+        long[] readsBefore;
+        try {
+            Path hdfsPath = new Path(path);
+            fs = hdfsPath.getFileSystem(conf);
+            readsBefore = readStatistics(fs);
+            listing = lister.listAsync(fs, hdfsPath, file -> enqueue(queue, file, aborted));
+            listing.whenComplete((ignored, error) -> aggregator.listingDone());
+        } catch (IllegalArgumentException e) {
+            // Path rejects malformed URIs such as "a:b"
+            return createFailedResult(path, System.currentTimeMillis() - startTime,
+                    "Invalid path: " + e.getMessage());
+        } catch (IOException e) {
+            return createFailedResult(path, System.currentTimeMillis() - startTime,
+                    "Failed to access path: " + e.getMessage());
+        }
+        
+        try {
+            countRows(queue, listing, format, counter, aggregator, metadataReport);
+        } catch (InterruptedException e) {
+            listing.cancel(false);
+            Thread.currentThread().interrupt();
+            return createFailedResult(path, System.currentTimeMillis() - startTime,
+                    "Interrupted while counting");
+        } finally {
+            // Nobody drains the queue any more: listers still running after a listing error
+            // must give up instead of blocking on a full queue
+            aborted.set(true);
+        }
+        
+        if (listing.isCompletedExceptionally()) {
+            Throwable cause = listingError(listing);
+            return createFailedResult(path, System.currentTimeMillis() - startTime,
+                    "Failed to access path: " + cause.getMessage());
+        }
+        
+        CountResult result = aggregator.toResult(path, System.currentTimeMillis() - startTime);
+        long[] readsAfter = readStatistics(fs);
+        RunMetrics metrics = result.getMetrics();
+        metrics.setBytesRead(readsAfter[0] - readsBefore[0]);
+        metrics.setBytesReadLocal(readsAfter[1] - readsBefore[1]);
+        metrics.setReadOps(readsAfter[2] - readsBefore[2]);
+        metrics.setLargeReadOps(readsAfter[3] - readsBefore[3]);
+        return result;
+    }
+    
+    public static boolean isValidFormat(String format) {
+        return "orc".equals(format) || "parquet".equals(format) || "textfile".equals(format);
+    }
+    
+    /**
+     * Apply the default delimiter and unescape "\n" as passed on the command line
+     */
+    public static String normalizeDelimiter(String delimiter) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            return DEFAULT_DELIMITER;
+        }
+        // Handle escaped newline
+        if ("\\n".equals(delimiter)) {
+            return "\n";
+        }
+        return delimiter;
+    }
+    
+    /**
+     * Consume listed files until listing has finished and the queue is drained, counting
+     * them on the shared thread pool with at most {@link #MAX_IN_FLIGHT} files queued or
+     * running at a time. Returns once every submitted file has been counted.
+     */
+    private void countRows(BlockingQueue<FileStatus> queue, CompletableFuture<Void> listing, String format,
+                           RowCounter counter, CountAggregator aggregator, boolean metadataReport)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        ConcurrencyLimiter limiter = counterOptions.getConcurrencyLimiter();
+        EngineMetrics metrics = counterOptions.getMetrics();
+        try {
+            while (true) {
+                FileStatus file = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (file == null) {
+                    // Listing only completes after its last file was queued
+                    if (listing.isDone() && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                inFlight.acquire();
+                if (limiter != null) {
+                    try {
+                        limiter.acquire();
+                    } catch (InterruptedException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+                aggregator.addFile();
+                FileStatus status = file;
+                try {
+                    // Size only matters to a largest-first pool
+                    executor.execute(LargestFirstExecutor.sized(status.getLen(), () -> {
+                        long start = System.nanoTime();
+                        if (metrics != null) {
+                            metrics.fileStarted();
+                        }
+                        try {
+                            countFile(format, counter, status, aggregator, metadataReport);
+                        } finally {
+                            long latency = System.nanoTime() - start;
+                            aggregator.recordLatency(latency);
+                            if (metrics != null) {
+                                metrics.fileFinished(format, latency);
+                            }
+                            if (limiter != null) {
+                                limiter.release();
+                            }
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    if (limiter != null) {
+                        limiter.release();
+                    }
+                    inFlight.release();
+                    // A pool that blocks submitters gives up when the request is cancelled
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException("Interrupted while submitting " + status.getPath());
+                    }
+                    aggregator.addError(status.getPath().toString(), "Counting pool is shut down");
+                }
+            }
+        } finally {
+            // Wait for the files already submitted
+            inFlight.acquireUninterruptibly(MAX_IN_FLIGHT);
+        }
+    }
+    
+    /**
+     * Count one file, retrying failures the retry policy allows for their error class
+     */
+    private void countFile(String format, RowCounter counter, FileStatus file, CountAggregator aggregator,
+                           boolean metadataReport) {
+        EngineMetrics metrics = counterOptions.getMetrics();
+        RetryPolicy retryPolicy = counterOptions.getRetryPolicy();
+        String path = file.getPath().toString();
+        Exception lastError = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                FileMetadata metadata = readFile(counter, file, metadataReport);
+                aggregator.addFileResult(metadata, metadataReport);
+                if (metrics != null) {
+                    metrics.fileCounted(format, metadata.getRowCount(), metadata.getSizeBytes());
+                }
+                if (lastError != null) {
+                    LOG.info("Counted file on attempt {}: {}", attempt, path);
+                }
+                return;
+            } catch (Exception e) {
+                lastError = e;
+                // Whatever the exception, an interrupted thread means the file is being abandoned
+                String errorClass = Thread.currentThread().isInterrupted() ? ErrorClassifier.CANCELLED
+                        : ErrorClassifier.classify(e);
+                if (attempt <= retryPolicy.getMaxRetries(errorClass) && backOff(retryPolicy, attempt, path, errorClass, e)) {
+                    if (metrics != null) {
+                        metrics.fileRetried(format, errorClass);
+                    }
+                    continue;
+                }
+                LOG.error("Error counting file ({}, attempt {}): {}", errorClass, attempt, path, e);
+                aggregator.addError(new FileError(path, e.getMessage(), errorClass, attempt));
+                if (metrics != null) {
+                    metrics.fileFailed(format, errorClass, e);
+                }
+                return;
+            }
+        }
+    }
+    
+    /**
+     * One attempt at a file, timed for the concurrency limiter
+     */
+    private FileMetadata readFile(RowCounter counter, FileStatus file, boolean metadataReport) throws IOException {
+        ConcurrencyLimiter limiter = counterOptions.getConcurrencyLimiter();
+        long start = System.nanoTime();
+        Exception error = null;
+        try {
+            return metadataReport ? counter.readMetadata(file)
+                    : new FileMetadata(file.getPath().toString(), counter.countRows(file), file.getLen());
+        } catch (IOException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (limiter != null) {
+                limiter.record(System.nanoTime() - start, error);
+            }
+        }
+    }
+    
+    /**
+     * Sleep before retrying a file
+     *
+     * @return false if interrupted, in which case the file is not retried
+     */
+    private static boolean backOff(RetryPolicy retryPolicy, int attempt, String path, String errorClass,
+                                   Exception error) {
+        long delay = retryPolicy.delayMillis(attempt);
+        LOG.warn("Retrying file in {} ms after {} error (attempt {}): {}: {}", delay, errorClass, attempt, path,
+                error.toString());
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Listing sink: blocks while the queue is full, gives up once the request is aborted
+     */
+    private static void enqueue(BlockingQueue<FileStatus> queue, FileStatus file, AtomicBoolean aborted) {
+        try {
+            while (!queue.offer(file, 1, TimeUnit.SECONDS)) {
+                if (aborted.get()) {
+                    throw new CancellationException("Counting aborted");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while queueing " + file.getPath());
+        }
+    }
+    
+    /**
+     * Process-wide read statistics of the file system's scheme: bytes read, bytes read on
+     * the local host, read ops, large read ops
+     */
+    private static long[] readStatistics(FileSystem fs) {
+        long[] values = new long[READ_STATISTICS.length];
+        StorageStatistics statistics = GlobalStorageStatistics.INSTANCE.get(fs.getScheme());
+        if (statistics != null) {
+            for (int i = 0; i < values.length; i++) {
+                Long value = statistics.getLong(READ_STATISTICS[i]);
+                values[i] = value == null ? 0 : value;
+            }
+        }
+        return values;
+    }
+    
+    private static Throwable listingError(CompletableFuture<Void> listing) {
+        try {
+            listing.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+    
+    public static CountResult createFailedResult(String path, long duration, String error) {
+        CountResult result = new CountResult();
+        result.setPath(path);
+        result.setRowCount(-1);
+        result.setFileCount(0);
+        result.setSuccessFileCount(0);
+        result.setTotalSizeBytes(0);
+        result.setStatus("failed");
+        result.setDurationMs(duration);
+        
+        List<FileError> errors = new ArrayList<>();
+        errors.add(new FileError("", error));
+        result.setErrors(errors);
+        result.setErrorCount(errors.size());
+        
+        return result;
+    }
+}
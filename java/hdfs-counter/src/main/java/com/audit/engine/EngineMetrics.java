@@ -0,0 +1,273 @@
+package com.audit.engine;
+
+import org.apache.hadoop.fs.GlobalStorageStatistics;
+import org.apache.hadoop.fs.StorageStatistics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide counters of an engine, rendered in the OpenMetrics text format for
+ * Prometheus: requests and files in flight, files, rows and bytes counted per format,
+ * per-format file latency histograms, errors by error and exception class, retries, and gauges read at
+ * scrape time (executor queue depth, concurrency limit, FileSystem bytes read).
+ *
+ * Recording is lock-free so the counting threads never wait on a scrape.
+ */
+public class EngineMetrics {
+    
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    
+    private static final String PREFIX = "hdfs_counter_";
+    
+    /** Upper bounds of the latency buckets in seconds, from footer reads to large text scans */
+    private static final double[] LATENCY_BUCKETS = {
+            0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger filesInFlight = new AtomicInteger();
+    private final Map<String, FormatMetrics> formats = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new LinkedHashMap<>();
+    private final Map<String, String> gaugeHelp = new LinkedHashMap<>();
+    
+    /**
+     * Gauge evaluated at every scrape, e.g. a queue length
+     *
+     * @param name metric name without the common prefix
+     */
+    public synchronized void registerGauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, value);
+        gaugeHelp.put(name, help);
+    }
+    
+    /**
+     * Queue depth and busy threads of the counting pool
+     */
+    public void registerExecutor(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            registerGauge("executor_queue_depth", "Files waiting for a counting thread", () -> pool.getQueue().size());
+            registerGauge("executor_active_threads", "Counting threads busy", pool::getActiveCount);
+        } else if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            registerGauge("executor_queue_depth", "Files and splits waiting for a counting thread",
+                    () -> pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+            registerGauge("executor_active_threads", "Counting threads busy", pool::getActiveThreadCount);
+        } else if (executor instanceof VirtualThreadExecutor) {
+            VirtualThreadExecutor pool = (VirtualThreadExecutor) executor;
+            registerGauge("executor_queue_depth", "Files waiting for an in-flight slot", pool::getQueueLength);
+            registerGauge("executor_active_threads", "Virtual threads counting a file", pool::getActiveCount);
+        }
+    }
+    
+    void requestStarted() {
+        requestsInFlight.incrementAndGet();
+    }
+    
+    void requestFinished(String status) {
+        requestsInFlight.decrementAndGet();
+        requests.computeIfAbsent(status == null ? "unknown" : status, key -> new LongAdder()).increment();
+    }
+    
+    void fileStarted() {
+        filesInFlight.incrementAndGet();
+    }
+    
+    void fileFinished(String format, long latencyNanos) {
+        filesInFlight.decrementAndGet();
+        format(format).observe(latencyNanos / 1e9);
+    }
+    
+    void fileCounted(String format, long rows, long bytes) {
+        FormatMetrics metrics = format(format);
+        metrics.files.increment();
+        metrics.rows.add(rows);
+        metrics.bytes.add(bytes);
+    }
+    
+    void fileRetried(String format, String errorClass) {
+        format(format).retries.computeIfAbsent(errorClass, key -> new LongAdder()).increment();
+    }
+    
+    void fileFailed(String format, String errorClass, Throwable error) {
+        format(format).errors.computeIfAbsent(labels("error_class", errorClass) + ","
+                + labels("exception", error.getClass().getName()), key -> new LongAdder()).increment();
+    }
+    
+    private FormatMetrics format(String format) {
+        return formats.computeIfAbsent(format, key -> new FormatMetrics());
+    }
+    
+    /**
+     * @return all metrics in the OpenMetrics text exposition format, ending with # EOF
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+        Map<String, FormatMetrics> byFormat = new TreeMap<>(formats);
+        
+        family(out, "requests_in_flight", "gauge", null, "Requests being counted");
+        sample(out, "requests_in_flight", "", requestsInFlight.get());
+        family(out, "requests", "counter", null, "Requests completed, by result status");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(requests).entrySet()) {
+            sample(out, "requests_total", labels("status", entry.getKey()), entry.getValue().sum());
+        }
+        family(out, "files_in_flight", "gauge", null, "Files being counted");
+        sample(out, "files_in_flight", "", filesInFlight.get());
+        
+        family(out, "files", "counter", null, "Files counted successfully");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            sample(out, "files_total", labels("format", entry.getKey()), entry.getValue().files.sum());
+        }
+        family(out, "rows", "counter", null, "Rows counted");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            sample(out, "rows_total", labels("format", entry.getKey()), entry.getValue().rows.sum());
+        }
+        family(out, "file_bytes", "counter", "bytes", "Size of the files counted");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            sample(out, "file_bytes_total", labels("format", entry.getKey()), entry.getValue().bytes.sum());
+        }
+        family(out, "file_errors", "counter", null, "Files that failed after retries, by error class and exception class");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            for (Map.Entry<String, LongAdder> error : new TreeMap<>(entry.getValue().errors).entrySet()) {
+                sample(out, "file_errors_total", labels("format", entry.getKey()) + "," + error.getKey(),
+                        error.getValue().sum());
+            }
+        }
+        family(out, "file_retries", "counter", null, "Failed attempts that were retried, by error class");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            for (Map.Entry<String, LongAdder> retry : new TreeMap<>(entry.getValue().retries).entrySet()) {
+                sample(out, "file_retries_total", labels("format", entry.getKey()) + ","
+                        + labels("error_class", retry.getKey()), retry.getValue().sum());
+            }
+        }
+        
+        family(out, "file_latency_seconds", "histogram", "seconds", "Time to count one file");
+        for (Map.Entry<String, FormatMetrics> entry : byFormat.entrySet()) {
+            entry.getValue().writeHistogram(out, labels("format", entry.getKey()));
+        }
+        
+        writeStorageStatistics(out);
+        synchronized (this) {
+            for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+                family(out, gauge.getKey(), "gauge", null, gaugeHelp.get(gauge.getKey()));
+                sample(out, gauge.getKey(), "", gauge.getValue().getAsDouble());
+            }
+        }
+        out.append("# EOF\n");
+        return out.toString();
+    }
+    
+    /**
+     * Bytes actually read through each Hadoop FileSystem scheme; footers are a fraction of
+     * the file sizes above, text scans all of them
+     */
+    private static void writeStorageStatistics(StringBuilder out) {
+        StringBuilder bytes = new StringBuilder();
+        StringBuilder ops = new StringBuilder();
+        Iterator<StorageStatistics> it = GlobalStorageStatistics.INSTANCE.iterator();
+        while (it.hasNext()) {
+            StorageStatistics statistics = it.next();
+            Long bytesRead = statistics.getLong("bytesRead");
+            if (bytesRead == null) {
+                continue;
+            }
+            String scheme = labels("scheme", statistics.getName());
+            Long readOps = statistics.getLong("readOps");
+            sample(bytes, "fs_read_bytes_total", scheme, bytesRead);
+            sample(ops, "fs_read_ops_total", scheme, readOps == null ? 0 : readOps);
+        }
+        family(out, "fs_read_bytes", "counter", "bytes", "Bytes read through the Hadoop FileSystem, by scheme");
+        out.append(bytes);
+        family(out, "fs_read_ops", "counter", null, "FileSystem read operations (open, getFileStatus), by scheme");
+        out.append(ops);
+    }
+    
+    private static void family(StringBuilder out, String name, String type, String unit, String help) {
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        if (unit != null) {
+            out.append("# UNIT ").append(PREFIX).append(name).append(' ').append(unit).append('\n');
+        }
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    }
+    
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(PREFIX).append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+    
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+    
+    private static String labels(String name, String value) {
+        StringBuilder label = new StringBuilder(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                label.append('\\').append(c);
+            } else if (c == '\n') {
+                label.append("\\n");
+            } else {
+                label.append(c);
+            }
+        }
+        return label.append('"').toString();
+    }
+    
+    /**
+     * Counters of one file format
+     */
+    private static class FormatMetrics {
+        final LongAdder files = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        /** Keyed by the error_class and exception labels */
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        final Map<String, LongAdder> retries = new ConcurrentHashMap<>();
+        final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+        final DoubleAdder latencySum = new DoubleAdder();
+        
+        FormatMetrics() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        void observe(double seconds) {
+            int i = 0;
+            while (i < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            latencySum.add(seconds);
+        }
+        
+        void writeHistogram(StringBuilder out, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < LATENCY_BUCKETS.length ? Double.toString(LATENCY_BUCKETS[i]) : "+Inf";
+                sample(out, "file_latency_seconds_bucket", labels + "," + labels("le", le), cumulative);
+            }
+            sample(out, "file_latency_seconds_count", labels, cumulative);
+            sample(out, "file_latency_seconds_sum", labels, latencySum.sum());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.audit.engine;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.hdfs.BlockMissingException;
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.security.AccessControlException;
+import org.apache.orc.FileFormatException;
+import org.apache.parquet.ParquetRuntimeException;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+/**
+ * Sorts per-file failures into the classes reported as {@code error_class}, which decide
+ * whether another attempt can help (see {@link RetryPolicy}):
+ * <ul>
+ *   <li>transient: NameNode failover, safe mode or overload, missing blocks, timeouts and
+ *       dropped connections;</li>
+ *   <li>corrupt: the file is not a valid ORC/Parquet file, fails its checksum or is truncated;</li>
+ *   <li>permission: access denied or an invalid token;</li>
+ *   <li>not_found: the file was deleted after it was listed;</li>
+ *   <li>cancelled: the counting thread was interrupted, e.g. the request is being shut down;</li>
+ *   <li>unknown: anything else.</li>
+ * </ul>
+ * The cause chain is searched from the outside in and the first recognized exception wins.
+ * Server-side exceptions arrive as {@link RemoteException} and are matched by class name.
+ */
+public final class ErrorClassifier {
+    
+    public static final String TRANSIENT = "transient";
+    public static final String CORRUPT = "corrupt";
+    public static final String PERMISSION = "permission";
+    public static final String NOT_FOUND = "not_found";
+    public static final String CANCELLED = "cancelled";
+    public static final String UNKNOWN = "unknown";
+    
+    private static final Set<String> REMOTE_TRANSIENT = new HashSet<>(Arrays.asList(
+            "org.apache.hadoop.ipc.RetriableException",
+            "org.apache.hadoop.ipc.StandbyException",
+            "org.apache.hadoop.ipc.ObserverRetryOnActiveException",
+            "org.apache.hadoop.ipc.CallQueueOverflowException",
+            "org.apache.hadoop.hdfs.server.namenode.SafeModeException"));
+    
+    private static final Set<String> REMOTE_PERMISSION = new HashSet<>(Arrays.asList(
+            "org.apache.hadoop.security.AccessControlException",
+            "org.apache.hadoop.security.authorize.AuthorizationException",
+            "org.apache.hadoop.security.token.SecretManager$InvalidToken"));
+    
+    private static final Set<String> REMOTE_NOT_FOUND = new HashSet<>(Arrays.asList(
+            "java.io.FileNotFoundException"));
+    
+    private ErrorClassifier() {
+    }
+    
+    public static String classify(Throwable error) {
+        if (ConcurrencyLimiter.isOverload(error)) {
+            return TRANSIENT;
+        }
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            String errorClass = classifyOne(e);
+            if (errorClass != null) {
+                return errorClass;
+            }
+        }
+        return UNKNOWN;
+    }
+    
+    private static String classifyOne(Throwable e) {
+        if (e instanceof RemoteException) {
+            String className = ((RemoteException) e).getClassName();
+            if (REMOTE_TRANSIENT.contains(className)) {
+                return TRANSIENT;
+            }
+            if (REMOTE_PERMISSION.contains(className)) {
+                return PERMISSION;
+            }
+            if (REMOTE_NOT_FOUND.contains(className)) {
+                return NOT_FOUND;
+            }
+            return null;
+        }
+        if (e instanceof FileNotFoundException) {
+            return NOT_FOUND;
+        }
+        if (e instanceof AccessControlException || e instanceof SecurityException) {
+            return PERMISSION;
+        }
+        if (e instanceof BlockMissingException || e instanceof ConnectException
+                || e instanceof SocketException || e instanceof SocketTimeoutException
+                || e instanceof UnknownHostException) {
+            return TRANSIENT;
+        }
+        if (e instanceof InterruptedIOException || e instanceof ClosedByInterruptException
+                || e instanceof InterruptedException) {
+            return CANCELLED;
+        }
+        if (e instanceof FileFormatException || e instanceof ParquetRuntimeException
+                || e instanceof ChecksumException || e instanceof EOFException || e instanceof ZipException) {
+            return CORRUPT;
+        }
+        // ParquetFileReader reports a bad magic number as a plain RuntimeException
+        if (e.getClass() == RuntimeException.class && e.getMessage() != null
+                && e.getMessage().contains("is not a Parquet file")) {
+            return CORRUPT;
+        }
+        return null;
+    }
+}
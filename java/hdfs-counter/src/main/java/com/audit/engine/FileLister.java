@@ -0,0 +1,163 @@
+package com.audit.engine;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parallel recursive file lister.
+ * Each directory is listed with a paged {@code listStatusIterator} and its subdirectories
+ * are fanned out across a bounded pool. Hidden entries (names starting with _ or .) are
+ * skipped while iterating, so hidden subtrees are never listed.
+ */
+public class FileLister {
+    private static final Logger LOG = LoggerFactory.getLogger(FileLister.class);
+    
+    private final ExecutorService pool;
+    
+    /**
+     * @param pool listing thread pool, owned by the caller
+     */
+    public FileLister(ExecutorService pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * List all visible files under the given path, blocking until the listing is complete
+     */
+    public List<FileStatus> listFiles(FileSystem fs, Path root) throws IOException {
+        ConcurrentLinkedQueue<FileStatus> files = new ConcurrentLinkedQueue<>();
+        CompletableFuture<Void> done = listAsync(fs, root, files::add);
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while listing " + root, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to list " + root + ": " + cause.getMessage(), cause);
+        }
+        return new ArrayList<>(files);
+    }
+    
+    /**
+     * Start listing the given path. Every visible file is passed to {@code sink}, possibly
+     * from several listing threads at once.
+     *
+     * @return future completed when the whole tree has been listed, or completed
+     *         exceptionally with the first listing error
+     * @throws IOException if the root itself cannot be accessed
+     */
+    public CompletableFuture<Void> listAsync(FileSystem fs, Path root, Consumer<FileStatus> sink)
+            throws IOException {
+        FileStatus status;
+        try {
+            // One RPC for the root instead of exists() + getFileStatus()
+            status = fs.getFileStatus(root);
+        } catch (FileNotFoundException e) {
+            throw new IOException("Path does not exist: " + root, e);
+        }
+        
+        if (status.isFile()) {
+            // Skip hidden files and success markers
+            if (isVisible(root)) {
+                sink.accept(status);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        Listing listing = new Listing(fs, sink);
+        listing.submit(root);
+        return listing.done;
+    }
+    
+    private static boolean isVisible(Path path) {
+        String name = path.getName();
+        return !name.startsWith("_") && !name.startsWith(".");
+    }
+    
+    /**
+     * State of one recursive listing: the number of directories still pending and the
+     * completion future
+     */
+    private class Listing {
+        private final FileSystem fs;
+        private final Consumer<FileStatus> sink;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        
+        Listing(FileSystem fs, Consumer<FileStatus> sink) {
+            this.fs = fs;
+            this.sink = sink;
+        }
+        
+        void submit(Path dir) {
+            pending.incrementAndGet();
+            try {
+                pool.execute(() -> listDirectory(dir));
+            } catch (RejectedExecutionException e) {
+                done.completeExceptionally(new IOException("Listing pool rejected " + dir, e));
+                finish();
+            }
+        }
+        
+        private void listDirectory(Path dir) {
+            try {
+                // A failed listing is reported once; skip the remaining directories
+                if (done.isDone()) {
+                    return;
+                }
+                RemoteIterator<FileStatus> children = fs.listStatusIterator(dir);
+                while (children.hasNext()) {
+                    // Stop mid-directory too once the listing failed elsewhere or was cancelled
+                    if (done.isDone()) {
+                        return;
+                    }
+                    FileStatus child = children.next();
+                    // Skip hidden directories (e.g., .hive-staging) and hidden files
+                    if (!isVisible(child.getPath())) {
+                        continue;
+                    }
+                    if (child.isDirectory()) {
+                        submit(child.getPath());
+                    } else {
+                        sink.accept(child);
+                    }
+                }
+            } catch (CancellationException e) {
+                // The sink gave up because counting was aborted; nothing left to report
+                done.completeExceptionally(e);
+            } catch (Throwable e) {
+                LOG.error("Error listing directory: {}", dir, e);
+                done.completeExceptionally(e);
+            } finally {
+                finish();
+            }
+        }
+        
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.audit.engine;
+
+import com.audit.model.FileError;
+import com.audit.model.FileMetadata;
+
+/**
+ * Receives each file's outcome as soon as it is counted, in completion order. Called
+ * concurrently from the counting threads, so implementations must be thread-safe.
+ */
+public interface FileResultListener {
+    
+    void onFile(FileMetadata file);
+    
+    void onError(FileError error);
+}
@@ -0,0 +1,60 @@
+package com.audit.engine;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size pool that runs queued tasks largest first (LPT scheduling), so a few big files
+ * listed last do not become the tail that decides the wall clock time.
+ *
+ * Tasks carry their size through {@link #sized(long, Runnable)}; equal sizes run in
+ * submission order. Unsized tasks, such as the split helpers of a large text file that is
+ * already being counted, jump ahead of every file so started work finishes first.
+ * Ordering only applies to tasks waiting in the queue, i.e. those the engine has already
+ * submitted (up to its in-flight limit per request).
+ */
+public class LargestFirstExecutor extends ThreadPoolExecutor {
+    
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    
+    public LargestFirstExecutor(int threads) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    }
+    
+    /**
+     * Tag a task with the size of the file it counts; other executors run it unchanged
+     */
+    public static Runnable sized(long size, Runnable task) {
+        return new SizedTask(size, task);
+    }
+    
+    @Override
+    public void execute(Runnable command) {
+        // The priority queue only holds comparable tasks, including the FutureTasks of submit()
+        super.execute(command instanceof SizedTask ? command : new SizedTask(Long.MAX_VALUE, command));
+    }
+    
+    private static final class SizedTask implements Runnable, Comparable<SizedTask> {
+        private final long size;
+        private final long sequence = SEQUENCE.getAndIncrement();
+        private final Runnable task;
+        
+        SizedTask(long size, Runnable task) {
+            this.size = size;
+            this.task = task;
+        }
+        
+        @Override
+        public void run() {
+            task.run();
+        }
+        
+        @Override
+        public int compareTo(SizedTask other) {
+            int bySize = Long.compare(other.size, size);
+            return bySize != 0 ? bySize : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.audit.engine;
+
+/**
+ * Log-linear histogram of per-file latencies in microseconds, laid out like HdrHistogram:
+ * each power of two is split into {@link #SUB_BUCKETS} linear buckets, so percentiles are
+ * exact to within 1% whatever the range, in a fixed 57 KB array.
+ */
+class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long totalCount;
+    private long maxValue;
+    
+    synchronized void record(long micros) {
+        long value = Math.max(0, micros);
+        counts[index(value)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+    
+    synchronized long getMaxValue() {
+        return maxValue;
+    }
+    
+    /**
+     * @param percentile 0 to 100
+     * @return highest value in the bucket holding the given percentile, 0 when empty
+     */
+    synchronized long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+    
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+    
+    private static long highestValue(int index) {
+        int block = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (block == 0) {
+            return sub;
+        }
+        return ((long) (SUB_BUCKETS + sub + 1) << (block - 1)) - 1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.audit.engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries of a failed file by {@link ErrorClassifier} class. Transient errors are retried up
+ * to maxRetries times and unknown ones once, since a plain IOException from a DataNode is
+ * often a dropped connection; corrupt, permission, not-found and cancelled errors are final.
+ *
+ * Attempts are spaced by exponential backoff (base, 2 x base, 4 x base, ... capped at
+ * {@link #MAX_DELAY_MS}), each delay drawn between half and all of its step so that files
+ * failing together during a NameNode failover do not come back together.
+ */
+public class RetryPolicy {
+    
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_BASE_DELAY_MS = 200;
+    
+    private static final long MAX_DELAY_MS = 10000;
+    
+    private final int maxRetries;
+    private final long baseDelayMs;
+    
+    /**
+     * @param maxRetries retries of transient errors, 0 to never retry
+     * @param baseDelayMs delay before the first retry
+     */
+    public RetryPolicy(int maxRetries, long baseDelayMs) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMs = Math.max(0, baseDelayMs);
+    }
+    
+    /**
+     * @return how many times a file failing with this class may be retried
+     */
+    public int getMaxRetries(String errorClass) {
+        if (ErrorClassifier.TRANSIENT.equals(errorClass)) {
+            return maxRetries;
+        }
+        if (ErrorClassifier.UNKNOWN.equals(errorClass)) {
+            return Math.min(1, maxRetries);
+        }
+        return 0;
+    }
+    
+    /**
+     * @param retry 1 for the first retry
+     * @return delay before that retry in milliseconds
+     */
+    public long delayMillis(int retry) {
+        long step = Math.min(MAX_DELAY_MS, baseDelayMs << Math.min(Math.max(0, retry - 1), 16));
+        if (step <= 1) {
+            return step;
+        }
+        return ThreadLocalRandom.current().nextLong(step / 2, step + 1);
+    }
+}
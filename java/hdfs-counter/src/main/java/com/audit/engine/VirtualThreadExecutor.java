@@ -0,0 +1,135 @@
+package com.audit.engine;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting pool with one virtual thread per task (Java 21+) and a semaphore bounding how
+ * many tasks run at once, i.e. how many files have HDFS requests in flight. Footer reads
+ * are almost all waiting on NameNode/DataNode round trips, so thousands can overlap
+ * without thousands of platform threads.
+ *
+ * The slot is taken by the submitting thread before a virtual thread is started, so
+ * {@link #execute} blocks while all slots are busy and waiting tasks hold no thread. A task
+ * submitting more work to the same pool (split helpers) would deadlock if it waited for a
+ * slot while holding one, so such nested submissions are rejected when no slot is free.
+ *
+ * The jar targets Java 8, so the virtual thread factory is looked up reflectively;
+ * {@link #create(int)} returns null on older JVMs.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+    
+    /** Set on threads running a task of some VirtualThreadExecutor */
+    private static final ThreadLocal<Boolean> IN_TASK = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
+    private final ExecutorService threads;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    
+    /**
+     * @param threads pool starting one thread per task
+     */
+    VirtualThreadExecutor(ExecutorService threads, int maxInFlight) {
+        this.threads = threads;
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+    
+    /**
+     * @param maxInFlight maximum number of tasks running at once
+     * @return the executor, or null if this JVM has no virtual threads
+     */
+    public static VirtualThreadExecutor create(int maxInFlight) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new VirtualThreadExecutor((ExecutorService) factory.invoke(null), Math.max(1, maxInFlight));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Run the command on a new virtual thread once one of the max in-flight slots is free
+     *
+     * @throws RejectedExecutionException if the pool is shut down, the caller is interrupted
+     *         while waiting (its interrupt flag is kept set), or a nested submission finds
+     *         no free slot
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (threads.isShutdown()) {
+            throw new RejectedExecutionException("Virtual thread pool is shut down");
+        }
+        if (IN_TASK.get()) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("No in-flight slot free for a nested task");
+            }
+        } else {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for an in-flight slot", e);
+            }
+        }
+        try {
+            threads.execute(() -> {
+                IN_TASK.set(Boolean.TRUE);
+                try {
+                    command.run();
+                } finally {
+                    IN_TASK.remove();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * @return submitters waiting for one of the max in-flight slots (approximate)
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+    
+    /**
+     * @return tasks running
+     */
+    public int getActiveCount() {
+        return maxInFlight - permits.availablePermits();
+    }
+    
+    @Override
+    public void shutdown() {
+        threads.shutdown();
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        return threads.shutdownNow();
+    }
+    
+    @Override
+    public boolean isShutdown() {
+        return threads.isShutdown();
+    }
+    
+    @Override
+    public boolean isTerminated() {
+        return threads.isTerminated();
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return threads.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,86 @@
+package com.audit.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Request model for a single counting job (one line of the serve protocol)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CountRequest {
+    
+    @JsonProperty("job_id")
+    private String jobId;
+    
+    private String path;
+    
+    private String format;
+    
+    private String delimiter;
+    
+    @JsonProperty("metadata_report")
+    private boolean metadataReport;
+    
+    /** Serve mode: stop the in-flight request with this job_id instead of counting */
+    private boolean cancel;
+    
+    public CountRequest() {
+    }
+    
+    public CountRequest(String jobId, String path, String format, String delimiter) {
+        this.jobId = jobId;
+        this.path = path;
+        this.format = format;
+        this.delimiter = delimiter;
+    }
+    
+    // Getters and Setters
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    public String getFormat() {
+        return format;
+    }
+    
+    public void setFormat(String format) {
+        this.format = format;
+    }
+    
+    public String getDelimiter() {
+        return delimiter;
+    }
+    
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+    
+    public boolean isMetadataReport() {
+        return metadataReport;
+    }
+    
+    public void setMetadataReport(boolean metadataReport) {
+        this.metadataReport = metadataReport;
+    }
+    
+    public boolean isCancel() {
+        return cancel;
+    }
+    
+    public void setCancel(boolean cancel) {
+        this.cancel = cancel;
+    }
+}
@@ -1,5 +1,6 @@
 package com.audit.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -8,6 +9,10 @@ import java.util.List;
  */
 public class CountResult {
     
+    @JsonProperty("job_id")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String jobId;
+    
     private String path;
     
     @JsonProperty("row_count")
@@ -29,8 +34,28 @@ public class CountResult {
     
     private List<FileError> errors;
     
+    /** All errors, of which at most the first 1000 are listed in errors */
+    @JsonProperty("error_count")
+    private int errorCount;
+    
+    /** Per-file breakdown, only in metadata reports */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<FileMetadata> files;
+    
+    /** Phase timings, latency percentiles and read statistics; absent when the request failed early */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RunMetrics metrics;
+    
     // Getters and Setters
     
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
     public String getPath() {
         return path;
     }
@@ -94,5 +119,29 @@ public class CountResult {
     public void setErrors(List<FileError> errors) {
         this.errors = errors;
     }
+    
+    public int getErrorCount() {
+        return errorCount;
+    }
+    
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+    
+    public List<FileMetadata> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<FileMetadata> files) {
+        this.files = files;
+    }
+    
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public void setMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
 }
 
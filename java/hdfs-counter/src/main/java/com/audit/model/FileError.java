@@ -1,5 +1,8 @@
 package com.audit.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Model for file processing error
  */
@@ -8,6 +11,16 @@ public class FileError {
     private String file;
     private String error;
     
+    /** transient, corrupt, permission, not_found, cancelled or unknown; absent for request-level errors */
+    @JsonProperty("error_class")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String errorClass;
+    
+    /** Attempts made on the file, including retries */
+    @JsonProperty("attempts")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer attempts;
+    
     public FileError() {
     }
     
@@ -16,6 +29,13 @@ public class FileError {
         this.error = error;
     }
     
+    public FileError(String file, String error, String errorClass, int attempts) {
+        this.file = file;
+        this.error = error;
+        this.errorClass = errorClass;
+        this.attempts = attempts;
+    }
+    
     public String getFile() {
         return file;
     }
@@ -31,5 +51,20 @@ public class FileError {
     public void setError(String error) {
         this.error = error;
     }
+    
+    public String getErrorClass() {
+        return errorClass;
+    }
+    
+    public void setErrorClass(String errorClass) {
+        this.errorClass = errorClass;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
 }
-
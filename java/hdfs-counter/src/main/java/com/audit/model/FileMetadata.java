@@ -0,0 +1,95 @@
+package com.audit.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Per-file breakdown of a metadata report, taken from the footer read that counts the rows.
+ * Fields a format does not record are left null and omitted from the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FileMetadata {
+    
+    private String file;
+    
+    @JsonProperty("row_count")
+    private long rowCount;
+    
+    /** Parquet row groups or ORC stripes */
+    @JsonProperty("row_groups")
+    private Integer rowGroups;
+    
+    @JsonProperty("size_bytes")
+    private long sizeBytes;
+    
+    @JsonProperty("compressed_bytes")
+    private Long compressedBytes;
+    
+    @JsonProperty("uncompressed_bytes")
+    private Long uncompressedBytes;
+    
+    public FileMetadata() {
+    }
+    
+    public FileMetadata(String file, long rowCount, long sizeBytes) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.sizeBytes = sizeBytes;
+    }
+    
+    // Getters and Setters
+    
+    public String getFile() {
+        return file;
+    }
+    
+    public void setFile(String file) {
+        this.file = file;
+    }
+    
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+    
+    public Integer getRowGroups() {
+        return rowGroups;
+    }
+    
+    public void setRowGroups(Integer rowGroups) {
+        this.rowGroups = rowGroups;
+    }
+    
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+    
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+    
+    /**
+     * @return bytes of stored (encoded, compressed) row data, excluding the footer
+     */
+    public Long getCompressedBytes() {
+        return compressedBytes;
+    }
+    
+    public void setCompressedBytes(Long compressedBytes) {
+        this.compressedBytes = compressedBytes;
+    }
+    
+    /**
+     * @return bytes of the same data before compression, null if the format does not record it
+     */
+    public Long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+    
+    public void setUncompressedBytes(Long uncompressedBytes) {
+        this.uncompressedBytes = uncompressedBytes;
+    }
+}
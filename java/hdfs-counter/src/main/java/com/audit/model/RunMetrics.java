@@ -0,0 +1,154 @@
+package com.audit.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Where the time of one request went: listing and counting phases (which overlap, since
+ * listed files are counted while listing continues), per-file latency percentiles and the
+ * reads issued through the Hadoop FileSystem.
+ *
+ * The read figures are deltas of the process-wide FileSystem statistics for the path's
+ * scheme, so in serve mode they include requests running at the same time.
+ */
+public class RunMetrics {
+    
+    /** From the start of the request until the last directory was listed */
+    @JsonProperty("listing_ms")
+    private long listingMs;
+    
+    /** From the first file submitted until the last file counted */
+    @JsonProperty("counting_ms")
+    private long countingMs;
+    
+    /** Sum of per-file latencies, i.e. counting thread busy time */
+    @JsonProperty("file_time_ms")
+    private long fileTimeMs;
+    
+    @JsonProperty("files_per_second")
+    private double filesPerSecond;
+    
+    @JsonProperty("latency_p50_ms")
+    private double latencyP50Ms;
+    
+    @JsonProperty("latency_p95_ms")
+    private double latencyP95Ms;
+    
+    @JsonProperty("latency_p99_ms")
+    private double latencyP99Ms;
+    
+    @JsonProperty("latency_max_ms")
+    private double latencyMaxMs;
+    
+    @JsonProperty("bytes_read")
+    private long bytesRead;
+    
+    /** Bytes read from a DataNode on the same host, e.g. through short-circuit reads */
+    @JsonProperty("bytes_read_local")
+    private long bytesReadLocal;
+    
+    /** Reads of file metadata: getFileStatus, open (block locations) */
+    @JsonProperty("read_ops")
+    private long readOps;
+    
+    /** Directory listings */
+    @JsonProperty("large_read_ops")
+    private long largeReadOps;
+    
+    // Getters and Setters
+    
+    public long getListingMs() {
+        return listingMs;
+    }
+    
+    public void setListingMs(long listingMs) {
+        this.listingMs = listingMs;
+    }
+    
+    public long getCountingMs() {
+        return countingMs;
+    }
+    
+    public void setCountingMs(long countingMs) {
+        this.countingMs = countingMs;
+    }
+    
+    public long getFileTimeMs() {
+        return fileTimeMs;
+    }
+    
+    public void setFileTimeMs(long fileTimeMs) {
+        this.fileTimeMs = fileTimeMs;
+    }
+    
+    public double getFilesPerSecond() {
+        return filesPerSecond;
+    }
+    
+    public void setFilesPerSecond(double filesPerSecond) {
+        this.filesPerSecond = filesPerSecond;
+    }
+    
+    public double getLatencyP50Ms() {
+        return latencyP50Ms;
+    }
+    
+    public void setLatencyP50Ms(double latencyP50Ms) {
+        this.latencyP50Ms = latencyP50Ms;
+    }
+    
+    public double getLatencyP95Ms() {
+        return latencyP95Ms;
+    }
+    
+    public void setLatencyP95Ms(double latencyP95Ms) {
+        this.latencyP95Ms = latencyP95Ms;
+    }
+    
+    public double getLatencyP99Ms() {
+        return latencyP99Ms;
+    }
+    
+    public void setLatencyP99Ms(double latencyP99Ms) {
+        this.latencyP99Ms = latencyP99Ms;
+    }
+    
+    public double getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+    
+    public void setLatencyMaxMs(double latencyMaxMs) {
+        this.latencyMaxMs = latencyMaxMs;
+    }
+    
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+    
+    public long getBytesReadLocal() {
+        return bytesReadLocal;
+    }
+    
+    public void setBytesReadLocal(long bytesReadLocal) {
+        this.bytesReadLocal = bytesReadLocal;
+    }
+    
+    public long getReadOps() {
+        return readOps;
+    }
+    
+    public void setReadOps(long readOps) {
+        this.readOps = readOps;
+    }
+    
+    public long getLargeReadOps() {
+        return largeReadOps;
+    }
+    
+    public void setLargeReadOps(long largeReadOps) {
+        this.largeReadOps = largeReadOps;
+    }
+}
@@ -0,0 +1,182 @@
+package com.audit;
+
+import com.audit.engine.CountEngine;
+import com.audit.engine.FileLister;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CounterServerTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService executor;
+    private ExecutorService listingPool;
+    private CountEngine engine;
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        listingPool = Executors.newFixedThreadPool(2);
+        engine = new CountEngine(new Configuration(), executor, new FileLister(listingPool));
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        listingPool.shutdownNow();
+    }
+    
+    @Test
+    public void invalidPathIsAnsweredWithItsJobId() throws Exception {
+        File data = folder.newFolder("data");
+        Files.write(new File(data, "part-0").toPath(), "a\nb\nc\n".getBytes(StandardCharsets.UTF_8));
+        
+        String input = "{\"job_id\":\"1\",\"path\":\"a:b\",\"format\":\"textfile\"}\n"
+                + "{\"job_id\":\"2\",\"path\":\"" + data.toURI() + "\",\"format\":\"textfile\"}\n";
+        Map<String, JsonNode> responses = serve(input);
+        
+        assertEquals(2, responses.size());
+        JsonNode invalid = responses.get("1");
+        assertEquals("failed", invalid.get("status").asText());
+        assertTrue(invalid.get("errors").get(0).get("error").asText().startsWith("Invalid path"));
+        JsonNode valid = responses.get("2");
+        assertEquals("success", valid.get("status").asText());
+        assertEquals(3, valid.get("row_count").asLong());
+    }
+    
+    @Test
+    public void requestsBeyondTheQueueAreAnsweredAsBusy() throws Exception {
+        File data = folder.newFolder("data");
+        Files.write(new File(data, "part-0").toPath(), "a\n".getBytes(StandardCharsets.UTF_8));
+        CountDownLatch release = blockCountingPool();
+        
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 3; i++) {
+            input.append("{\"job_id\":\"").append(i).append("\",\"path\":\"").append(data.toURI())
+                    .append("\",\"format\":\"textfile\"}\n");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Thread serving = serveInBackground(new CounterServer(engine, objectMapper, 1, 1), input.toString(), bytes);
+        
+        // Job 1 runs, job 2 waits in the queue, job 3 is rejected right away
+        awaitOutput(bytes, "Server busy");
+        release.countDown();
+        serving.join(10000);
+        
+        Map<String, JsonNode> responses = parse(bytes);
+        assertEquals(3, responses.size());
+        assertEquals("success", responses.get("1").get("status").asText());
+        assertEquals("success", responses.get("2").get("status").asText());
+        assertEquals("failed", responses.get("3").get("status").asText());
+        assertTrue(responses.get("3").get("errors").get(0).get("error").asText().startsWith("Server busy"));
+    }
+    
+    @Test
+    public void cancelledRequestsAreAnsweredOnce() throws Exception {
+        File data = folder.newFolder("data");
+        Files.write(new File(data, "part-0").toPath(), "a\n".getBytes(StandardCharsets.UTF_8));
+        CountDownLatch release = blockCountingPool();
+        
+        String request = "\",\"path\":\"" + data.toURI() + "\",\"format\":\"textfile\"}\n";
+        String input = "{\"job_id\":\"1" + request + "{\"job_id\":\"2" + request
+                + "{\"job_id\":\"1\",\"cancel\":true}\n"
+                + "{\"job_id\":\"2\",\"cancel\":true}\n"
+                + "{\"job_id\":\"3\",\"cancel\":true}\n";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Thread serving = serveInBackground(new CounterServer(engine, objectMapper, 1, 5), input, bytes);
+        
+        // Job 2 was still queued, so its cancel answers it
+        awaitOutput(bytes, "Cancelled before it started");
+        release.countDown();
+        serving.join(10000);
+        
+        String output = bytes.toString("UTF-8");
+        Map<String, JsonNode> responses = parse(bytes);
+        assertEquals(2, output.trim().split("\n").length);
+        assertTrue(responses.containsKey("1"));
+        assertEquals("failed", responses.get("2").get("status").asText());
+    }
+    
+    /**
+     * Hold both counting threads until the returned latch is released
+     */
+    private CountDownLatch blockCountingPool() {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return release;
+    }
+    
+    private static Thread serveInBackground(CounterServer server, String input, ByteArrayOutputStream bytes)
+            throws IOException {
+        PrintStream out = new PrintStream(bytes, true, "UTF-8");
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        serving.start();
+        return serving;
+    }
+    
+    private static void awaitOutput(ByteArrayOutputStream bytes, String text) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!bytes.toString("UTF-8").contains(text) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+    
+    private Map<String, JsonNode> serve(String input) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            new CounterServer(engine, objectMapper, 2).serve(
+                    new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        }
+        return parse(bytes);
+    }
+    
+    private Map<String, JsonNode> parse(ByteArrayOutputStream bytes) throws IOException {
+        Map<String, JsonNode> responses = new HashMap<>();
+        for (String line : new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            if (!line.trim().isEmpty()) {
+                JsonNode node = objectMapper.readTree(line);
+                responses.put(node.get("job_id").asText(), node);
+            }
+        }
+        return responses;
+    }
+}
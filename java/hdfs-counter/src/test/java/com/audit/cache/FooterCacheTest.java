@@ -0,0 +1,104 @@
+package com.audit.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class FooterCacheTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void savedEntriesAreLoadedByTheNextProcess() throws Exception {
+        File dir = new File(folder.getRoot(), "cache");
+        FooterCache first = FooterCache.open(dir, 100);
+        first.put("/warehouse/t/part-0", 100, 1000, 42);
+        first.save();
+        
+        FooterCache second = FooterCache.open(dir, 100);
+        assertEquals(42, second.get("/warehouse/t/part-0", 100, 1000));
+        assertEquals(-1, second.get("/warehouse/t/part-1", 100, 1000));
+    }
+    
+    @Test
+    public void concurrentProcessesMergeTheirEntries() throws Exception {
+        File dir = folder.getRoot();
+        FooterCache a = FooterCache.open(dir, 100);
+        FooterCache b = FooterCache.open(dir, 100);
+        a.put("/t/a", 1, 1, 10);
+        a.put("/t/shared", 1, 1, 20);
+        a.save();
+        // b loaded before a saved; saving must keep a's entries, and b's own win
+        b.put("/t/b", 1, 1, 30);
+        b.put("/t/shared", 1, 2, 21);
+        b.save();
+        
+        FooterCache merged = FooterCache.open(dir, 100);
+        assertEquals(10, merged.get("/t/a", 1, 1));
+        assertEquals(30, merged.get("/t/b", 1, 1));
+        assertEquals(21, merged.get("/t/shared", 1, 2));
+    }
+    
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        File dir = folder.getRoot();
+        FooterCache cache = FooterCache.open(dir, 3);
+        cache.put("/t/a", 1, 1, 1);
+        cache.put("/t/b", 1, 1, 2);
+        cache.put("/t/c", 1, 1, 3);
+        assertEquals(1, cache.get("/t/a", 1, 1));
+        cache.put("/t/d", 1, 1, 4);
+        
+        assertEquals(-1, cache.get("/t/b", 1, 1));
+        assertEquals(1, cache.get("/t/a", 1, 1));
+        assertEquals(3, cache.get("/t/c", 1, 1));
+        assertEquals(4, cache.get("/t/d", 1, 1));
+        
+        // The file on disk holds at most maxEntries, dropping the eldest
+        cache.save();
+        FooterCache other = FooterCache.open(dir, 3);
+        other.put("/t/e", 1, 1, 5);
+        other.save();
+        FooterCache reopened = FooterCache.open(dir, 10);
+        assertEquals(-1, reopened.get("/t/a", 1, 1));
+        assertEquals(3, reopened.get("/t/c", 1, 1));
+        assertEquals(4, reopened.get("/t/d", 1, 1));
+        assertEquals(5, reopened.get("/t/e", 1, 1));
+    }
+    
+    @Test
+    public void changedLengthOrModificationTimeIsAMiss() throws Exception {
+        FooterCache cache = FooterCache.open(folder.getRoot(), 100);
+        cache.put("/t/a", 100, 1000, 42);
+        
+        assertEquals(-1, cache.get("/t/a", 101, 1000));
+        assertEquals(-1, cache.get("/t/a", 100, 1001));
+        assertEquals(42, cache.get("/t/a", 100, 1000));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        
+        // A rewritten file replaces the stale entry
+        cache.put("/t/a", 101, 1001, 43);
+        assertEquals(43, cache.get("/t/a", 101, 1001));
+        assertEquals(-1, cache.get("/t/a", 100, 1000));
+    }
+    
+    @Test
+    public void unreadableCacheFileStartsEmpty() throws Exception {
+        File dir = folder.getRoot();
+        Files.write(new File(dir, "footer-cache.bin").toPath(), "garbage".getBytes(StandardCharsets.UTF_8));
+        
+        FooterCache cache = FooterCache.open(dir, 100);
+        assertEquals(-1, cache.get("/t/a", 1, 1));
+        cache.put("/t/a", 1, 1, 7);
+        cache.save();
+        assertEquals(7, FooterCache.open(dir, 100).get("/t/a", 1, 1));
+    }
+}
@@ -0,0 +1,112 @@
+package com.audit.counter;
+
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrcTailTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final Configuration conf = new Configuration();
+    
+    @Test
+    public void matchesReaderForEveryCompression() throws Exception {
+        for (CompressionKind kind : CompressionKind.values()) {
+            Path path = write(kind.name(), kind, 2, 12345, 0);
+            assertMatchesReader(kind.name(), path);
+        }
+    }
+    
+    @Test
+    public void emptyFileHasNoRows() throws Exception {
+        assertMatchesReader("no rows", write("empty", CompressionKind.ZLIB, 2, 0, 0));
+    }
+    
+    @Test
+    public void footerLargerThanTheFirstReadIsReadAgain() throws Exception {
+        for (CompressionKind kind : CompressionKind.values()) {
+            // Many columns plus incompressible user metadata push the footer past TAIL_GUESS
+            Path path = write("wide-" + kind.name(), kind, 500, 5000, 4 * OrcTail.TAIL_GUESS);
+            try (Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf))) {
+                long footerLength = reader.getFileTail().getPostscript().getFooterLength();
+                assertTrue(kind + " footer is " + footerLength + " bytes", footerLength > OrcTail.TAIL_GUESS);
+            }
+            assertMatchesReader(kind.name(), path);
+        }
+    }
+    
+    private void assertMatchesReader(String message, Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        long length = fs.getFileStatus(path).getLen();
+        try (Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf));
+             FSDataInputStream in = fs.open(path)) {
+            assertEquals(message, reader.getNumberOfRows(), OrcTail.numberOfRows(in, length));
+            
+            FileMetadata metadata = OrcTail.metadata(in, path.toString(), length);
+            assertEquals(message, reader.getNumberOfRows(), metadata.getRowCount());
+            assertEquals(message, reader.getStripes().size(), (int) metadata.getRowGroups());
+        }
+    }
+    
+    /**
+     * Writes rows of bigint columns in small stripes, so non-trivial files have several
+     */
+    private Path write(String name, CompressionKind kind, int columns, int rows, int metadataBytes)
+            throws IOException {
+        TypeDescription schema = TypeDescription.createStruct();
+        for (int c = 0; c < columns; c++) {
+            schema.addField("c" + c, TypeDescription.createLong());
+        }
+        Path path = new Path(new File(folder.getRoot(), name + ".orc").toURI());
+        OrcFile.WriterOptions options = OrcFile.writerOptions(conf)
+                .setSchema(schema)
+                .compress(kind)
+                .stripeSize(64 * 1024)
+                .bufferSize(16 * 1024);
+        Random random = new Random(rows + columns);
+        try (Writer writer = OrcFile.createWriter(path, options)) {
+            if (metadataBytes > 0) {
+                byte[] value = new byte[metadataBytes];
+                random.nextBytes(value);
+                writer.addUserMetadata("padding", ByteBuffer.wrap(value));
+            }
+            VectorizedRowBatch batch = schema.createRowBatch();
+            for (int row = 0; row < rows; row++) {
+                int r = batch.size++;
+                for (int c = 0; c < columns; c++) {
+                    ((LongColumnVector) batch.cols[c]).vector[r] = random.nextLong();
+                }
+                if (batch.size == batch.getMaxSize()) {
+                    writer.addRowBatch(batch);
+                    batch.reset();
+                }
+            }
+            if (batch.size > 0) {
+                writer.addRowBatch(batch);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,122 @@
+package com.audit.counter;
+
+import com.audit.model.FileMetadata;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParquetTailTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final Configuration conf = new Configuration();
+    
+    @Test
+    public void matchesReaderForASmallFile() throws Exception {
+        assertMatchesReader(write("small", 3, 1000, 1024 * 1024));
+    }
+    
+    @Test
+    public void emptyFileHasNoRows() throws Exception {
+        assertMatchesReader(write("empty", 3, 0, 1024 * 1024));
+    }
+    
+    @Test
+    public void footerWithManyColumnsAndRowGroupsIsReadAgain() throws Exception {
+        // A tiny row group size closes a row group at every size check (each 100 rows)
+        Path path = write("wide", 200, 3000, 1024);
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, conf))) {
+            assertTrue(reader.getRowGroups().size() + " row groups", reader.getRowGroups().size() >= 10);
+        }
+        assertTrue("footer is " + footerLength(path) + " bytes", footerLength(path) > ParquetTail.TAIL_GUESS);
+        assertMatchesReader(path);
+    }
+    
+    private void assertMatchesReader(Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        long length = fs.getFileStatus(path).getLen();
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, conf));
+             FSDataInputStream in = fs.open(path)) {
+            long compressed = 0;
+            long uncompressed = 0;
+            for (BlockMetaData block : reader.getRowGroups()) {
+                compressed += block.getCompressedSize();
+                uncompressed += block.getTotalByteSize();
+            }
+            
+            assertEquals(reader.getRecordCount(), ParquetTail.numberOfRows(in, length));
+            FileMetadata metadata = ParquetTail.metadata(in, path.toString(), length);
+            assertEquals(reader.getRecordCount(), metadata.getRowCount());
+            assertEquals(reader.getRowGroups().size(), (int) metadata.getRowGroups());
+            assertEquals(compressed, (long) metadata.getCompressedBytes());
+            assertEquals(uncompressed, (long) metadata.getUncompressedBytes());
+        }
+    }
+    
+    /**
+     * Footer length from the trailer: [footer][4-byte little-endian length]["PAR1"]
+     */
+    private long footerLength(Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        long length = fs.getFileStatus(path).getLen();
+        byte[] trailer = new byte[8];
+        try (FSDataInputStream in = fs.open(path)) {
+            in.readFully(length - trailer.length, trailer);
+        }
+        return (trailer[0] & 0xffL) | (trailer[1] & 0xffL) << 8 | (trailer[2] & 0xffL) << 16
+                | (trailer[3] & 0xffL) << 24;
+    }
+    
+    private Path write(String name, int columns, int rows, int rowGroupSize) throws IOException {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (int c = 0; c < columns; c++) {
+            builder.addField(Types.optional(PrimitiveTypeName.INT64).named("c" + c));
+        }
+        MessageType schema = builder.named("row");
+        Path path = new Path(new File(folder.getRoot(), name + ".parquet").toURI());
+        SimpleGroupFactory groups = new SimpleGroupFactory(schema);
+        Random random = new Random(rows + columns);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(path)
+                .withConf(conf)
+                .withType(schema)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withRowGroupSize(rowGroupSize)
+                .build()) {
+            for (int row = 0; row < rows; row++) {
+                Group group = groups.newGroup();
+                for (Type field : schema.getFields()) {
+                    // Some nulls, so definition levels are written too
+                    if (random.nextInt(10) > 0) {
+                        group.add(field.getName(), random.nextLong());
+                    }
+                }
+                writer.write(group);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,100 @@
+package com.audit.counter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class SwarByteScannerTest {
+    
+    /** Zero, the usual delimiters, and values around the sign bit where SWAR borrows go wrong */
+    private static final byte[] DELIMITERS = {0x00, 0x01, '\n', '|', 0x7f, (byte) 0x80, (byte) 0x81, (byte) 0xfe, (byte) 0xff};
+    
+    private final ByteScanner scalar = new ScalarByteScanner();
+    private ByteScanner swar;
+    
+    @Before
+    public void setUp() {
+        assumeTrue("SWAR scanner unavailable in this JVM", SwarByteScanner.isSupported());
+        swar = new SwarByteScanner();
+    }
+    
+    @Test
+    public void delimiterAtEveryLanePosition() {
+        for (byte b : DELIMITERS) {
+            for (int position = 0; position < 24; position++) {
+                byte[] buffer = new byte[24];
+                for (int i = 0; i < buffer.length; i++) {
+                    // Neighbours differ from the delimiter only in the low or the high bit
+                    buffer[i] = (byte) (i % 2 == 0 ? b ^ 0x01 : b ^ 0x80);
+                }
+                buffer[position] = b;
+                assertAllRanges(buffer, b);
+            }
+        }
+    }
+    
+    @Test
+    public void highBytesNextToTheDelimiter() {
+        byte[] high = {(byte) 0x80, (byte) 0x81, (byte) 0xc0, (byte) 0xfe, (byte) 0xff};
+        Random random = new Random(11);
+        for (byte b : DELIMITERS) {
+            for (int trial = 0; trial < 200; trial++) {
+                byte[] buffer = new byte[1 + random.nextInt(40)];
+                for (int i = 0; i < buffer.length; i++) {
+                    buffer[i] = random.nextInt(3) == 0 ? b : high[random.nextInt(high.length)];
+                }
+                assertAllRanges(buffer, b);
+            }
+        }
+    }
+    
+    @Test
+    public void randomBuffersMatchTheScalarScanner() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 20000; trial++) {
+            byte[] buffer = new byte[random.nextInt(100)];
+            // A small alphabet makes matches frequent; sometimes any byte at all
+            int alphabet = random.nextBoolean() ? 4 : 256;
+            byte base = (byte) random.nextInt(256);
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = (byte) (base + random.nextInt(alphabet));
+            }
+            byte b = (byte) (base + random.nextInt(alphabet));
+            int from = buffer.length == 0 ? 0 : random.nextInt(buffer.length + 1);
+            int to = from + random.nextInt(buffer.length - from + 1);
+            assertSameCount(buffer, from, to, b);
+        }
+    }
+    
+    /**
+     * Every [from, to): unaligned starts and every tail length around 8-byte words
+     */
+    private void assertAllRanges(byte[] buffer, byte b) {
+        for (int from = 0; from <= buffer.length; from++) {
+            for (int to = from; to <= buffer.length; to++) {
+                assertSameCount(buffer, from, to, b);
+            }
+        }
+    }
+    
+    private void assertSameCount(byte[] buffer, int from, int to, byte b) {
+        int expected = scalar.count(buffer, from, to, b);
+        String message = "byte " + (b & 0xff) + " in [" + from + ", " + to + ") of " + buffer.length;
+        assertEquals(message, expected, swar.count(buffer, from, to, b));
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(buffer.length);
+        direct.put(buffer);
+        assertEquals("direct " + message, expected, swar.count(direct, from, to, b));
+        
+        // A heap buffer sliced at an odd offset, so array indexes are shifted by arrayOffset
+        byte[] padded = new byte[buffer.length + 3];
+        System.arraycopy(buffer, 0, padded, 3, buffer.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 3, buffer.length).slice();
+        assertEquals("slice " + message, expected, swar.count(slice, from, to, b));
+    }
+}
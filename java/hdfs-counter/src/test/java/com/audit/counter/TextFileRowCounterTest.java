@@ -0,0 +1,118 @@
+package com.audit.counter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextFileRowCounterTest {
+    
+    /** Delimiters with a border ("aa", "abab", "|@|") are the ones a split can cut in two */
+    private static final String[] DELIMITERS = {"\n", "|@|", "aa", "aba", "aaa", "abab", "\r\n", "a|a@a"};
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final Configuration conf = new Configuration();
+    private ExecutorService splitPool;
+    
+    @Before
+    public void setUp() {
+        splitPool = Executors.newFixedThreadPool(4);
+    }
+    
+    @After
+    public void tearDown() {
+        splitPool.shutdownNow();
+    }
+    
+    @Test
+    public void delimiterStraddlingASplitIsCountedOnce() throws Exception {
+        // "x|@|y": the delimiter starts in the first 2-byte split and ends in the second
+        assertCounts("x|@|y", "|@|", 2, 2);
+        assertCounts("x|@|y|@|", "|@|", 2, 2);
+        // "aaaaa" holds two non-overlapping "aa" and a trailing "a" row
+        assertCounts("aaaaa", "aa", 3, 1);
+        assertCounts("aaaa", "aa", 2, 3);
+        assertCounts("ababab", "abab", 2, 3);
+        assertCounts("xababy", "abab", 2, 3);
+    }
+    
+    @Test
+    public void splitCountsMatchSequentialCounts() throws Exception {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 2000; trial++) {
+            String delimiter = DELIMITERS[trial % DELIMITERS.length];
+            String alphabet = delimiter.equals("\r\n") ? "\r\nx" : (trial % 5 == 0 ? "a" : "|@ab\n");
+            byte[] data = new byte[1 + random.nextInt(200)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            long splitSize = 1 + random.nextInt(40);
+            byte[] trailing = append(data, delimiter.getBytes(StandardCharsets.UTF_8));
+            
+            for (byte[] content : new byte[][] {data, trailing}) {
+                File file = write(content);
+                String message = "delimiter " + escape(delimiter) + ", split " + splitSize
+                        + ", content " + escape(new String(content, StandardCharsets.UTF_8));
+                assertEquals(message, countSequential(file, delimiter), countSplit(file, delimiter, splitSize));
+            }
+        }
+    }
+    
+    private void assertCounts(String content, String delimiter, long expected, long splitSize) throws IOException {
+        File file = write(content.getBytes(StandardCharsets.UTF_8));
+        assertEquals(content, expected, countSequential(file, delimiter));
+        assertEquals(content + " in " + splitSize + "-byte splits", expected, countSplit(file, delimiter, splitSize));
+    }
+    
+    private long countSequential(File file, String delimiter) throws IOException {
+        CounterOptions options = new CounterOptions();
+        options.setSplitSize(0);
+        return new TextFileRowCounter(conf, delimiter, options).countRows(status(file, file.length()));
+    }
+    
+    private long countSplit(File file, String delimiter, long splitSize) throws IOException {
+        CounterOptions options = new CounterOptions();
+        options.setSplitSize(splitSize);
+        options.setSplitExecutor(splitPool);
+        options.setSplitParallelism(4);
+        return new TextFileRowCounter(conf, delimiter, options).countRows(status(file, splitSize));
+    }
+    
+    /** Splits follow the block size, so a small block size gives many splits on a small file */
+    private static FileStatus status(File file, long blockSize) {
+        return new FileStatus(file.length(), false, 1, blockSize, 0, new Path(file.toURI()));
+    }
+    
+    private File write(byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), "data.txt");
+        Files.write(file.toPath(), content);
+        return file;
+    }
+    
+    private static byte[] append(byte[] data, byte[] suffix) {
+        byte[] result = new byte[data.length + suffix.length];
+        System.arraycopy(data, 0, result, 0, data.length);
+        System.arraycopy(suffix, 0, result, data.length, suffix.length);
+        return result;
+    }
+    
+    private static String escape(String s) {
+        return s.replace("\r", "\\r").replace("\n", "\\n");
+    }
+}
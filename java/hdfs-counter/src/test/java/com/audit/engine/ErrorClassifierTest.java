@@ -0,0 +1,89 @@
+package com.audit.engine;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.hdfs.BlockMissingException;
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.RetriableException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.security.AccessControlException;
+import org.apache.orc.FileFormatException;
+import org.apache.parquet.io.ParquetDecodingException;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+
+import static org.junit.Assert.assertEquals;
+
+public class ErrorClassifierTest {
+    
+    @Test
+    public void transientErrors() {
+        assertClass(ErrorClassifier.TRANSIENT, new BlockMissingException("/t/a", "Could not obtain block", 0));
+        assertClass(ErrorClassifier.TRANSIENT, remote("org.apache.hadoop.ipc.StandbyException"));
+        assertClass(ErrorClassifier.TRANSIENT, remote("org.apache.hadoop.hdfs.server.namenode.SafeModeException"));
+        assertClass(ErrorClassifier.TRANSIENT, new StandbyException("standby"));
+        assertClass(ErrorClassifier.TRANSIENT, new RetriableException("busy"));
+        assertClass(ErrorClassifier.TRANSIENT, new IOException("Call failed", new ConnectException("refused")));
+        // An InterruptedIOException, but a timeout rather than a cancellation
+        assertClass(ErrorClassifier.TRANSIENT, new SocketTimeoutException("read timed out"));
+    }
+    
+    @Test
+    public void corruptFiles() {
+        assertClass(ErrorClassifier.CORRUPT, new FileFormatException("Malformed ORC file"));
+        assertClass(ErrorClassifier.CORRUPT, new ParquetDecodingException("bad page"));
+        assertClass(ErrorClassifier.CORRUPT, new RuntimeException("file:/t/a is not a Parquet file. expected magic"));
+        assertClass(ErrorClassifier.CORRUPT, new ChecksumException("Checksum error", 0));
+        assertClass(ErrorClassifier.CORRUPT, new EOFException("Unexpected end of input stream"));
+    }
+    
+    @Test
+    public void permissionErrors() {
+        assertClass(ErrorClassifier.PERMISSION, new AccessControlException("Permission denied"));
+        assertClass(ErrorClassifier.PERMISSION, remote("org.apache.hadoop.security.AccessControlException"));
+        assertClass(ErrorClassifier.PERMISSION, remote("org.apache.hadoop.security.token.SecretManager$InvalidToken"));
+    }
+    
+    @Test
+    public void missingFiles() {
+        assertClass(ErrorClassifier.NOT_FOUND, new FileNotFoundException("/t/a"));
+        assertClass(ErrorClassifier.NOT_FOUND, remote("java.io.FileNotFoundException"));
+        assertClass(ErrorClassifier.NOT_FOUND, new UncheckedIOException(new FileNotFoundException("/t/a")));
+    }
+    
+    @Test
+    public void cancelledWork() {
+        assertClass(ErrorClassifier.CANCELLED, new InterruptedIOException("interrupted"));
+        assertClass(ErrorClassifier.CANCELLED, new ClosedByInterruptException());
+        assertClass(ErrorClassifier.CANCELLED, new IOException("read failed", new InterruptedException()));
+    }
+    
+    @Test
+    public void unknownErrors() {
+        assertClass(ErrorClassifier.UNKNOWN, new IOException("weird"));
+        assertClass(ErrorClassifier.UNKNOWN, new IllegalStateException("bug"));
+        assertClass(ErrorClassifier.UNKNOWN, remote("org.example.SomethingElse"));
+    }
+    
+    @Test
+    public void outermostRecognizedCauseWins() {
+        IOException e = new FileNotFoundException("/t/a");
+        e.initCause(new ConnectException("refused"));
+        assertClass(ErrorClassifier.NOT_FOUND, e);
+    }
+    
+    private static RemoteException remote(String className) {
+        return new RemoteException(className, "from the NameNode");
+    }
+    
+    private static void assertClass(String expected, Throwable error) {
+        assertEquals(error.toString(), expected, ErrorClassifier.classify(error));
+    }
+}
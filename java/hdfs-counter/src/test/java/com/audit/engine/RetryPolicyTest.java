@@ -0,0 +1,43 @@
+package com.audit.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    
+    @Test
+    public void onlyTransientAndUnknownErrorsAreRetried() {
+        RetryPolicy policy = new RetryPolicy(5, 100);
+        assertEquals(5, policy.getMaxRetries(ErrorClassifier.TRANSIENT));
+        assertEquals(1, policy.getMaxRetries(ErrorClassifier.UNKNOWN));
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.CORRUPT));
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.PERMISSION));
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.NOT_FOUND));
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.CANCELLED));
+    }
+    
+    @Test
+    public void zeroRetriesDisablesRetryingEverything() {
+        RetryPolicy policy = new RetryPolicy(0, 100);
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.TRANSIENT));
+        assertEquals(0, policy.getMaxRetries(ErrorClassifier.UNKNOWN));
+    }
+    
+    @Test
+    public void delaysDoubleWithJitterUpToTheCap() {
+        RetryPolicy policy = new RetryPolicy(20, 200);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(100, 200, policy.delayMillis(1));
+            assertBetween(200, 400, policy.delayMillis(2));
+            assertBetween(400, 800, policy.delayMillis(3));
+            assertBetween(5000, 10000, policy.delayMillis(20));
+        }
+        assertEquals(0, new RetryPolicy(3, 0).delayMillis(1));
+    }
+    
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
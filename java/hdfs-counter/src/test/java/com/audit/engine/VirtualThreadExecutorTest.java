@@ -0,0 +1,136 @@
+package com.audit.engine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs on a cached platform thread pool standing in for virtual threads, so the slot
+ * handling is tested on any JVM
+ */
+public class VirtualThreadExecutorTest {
+    
+    private ExecutorService threads;
+    private VirtualThreadExecutor executor;
+    
+    @Before
+    public void setUp() {
+        threads = Executors.newCachedThreadPool();
+        executor = new VirtualThreadExecutor(threads, 2);
+    }
+    
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+    }
+    
+    @Test
+    public void submitterWaitsForASlotWithoutStartingAThread() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+        assertEquals(2, executor.getActiveCount());
+        
+        CountDownLatch third = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> executor.execute(third::countDown));
+        submitter.start();
+        waitFor(() -> executor.getQueueLength() == 1);
+        // Only the two running tasks have threads; the third waits in its submitter
+        assertEquals(2, ((ThreadPoolExecutor) threads).getPoolSize());
+        
+        release.countDown();
+        assertTrue(third.await(10, TimeUnit.SECONDS));
+        submitter.join();
+        waitFor(() -> executor.getActiveCount() == 0);
+    }
+    
+    @Test
+    public void interruptedSubmitterIsRejectedAndKeepsItsInterrupt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+        
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicInteger ran = new AtomicInteger();
+        Thread submitter = new Thread(() -> {
+            try {
+                executor.execute(ran::incrementAndGet);
+            } catch (RejectedExecutionException e) {
+                error.set(Thread.currentThread().isInterrupted() ? e : new AssertionError("interrupt lost"));
+            }
+        });
+        submitter.start();
+        waitFor(() -> executor.getQueueLength() == 1);
+        submitter.interrupt();
+        submitter.join(10000);
+        
+        assertTrue(String.valueOf(error.get()), error.get() instanceof RejectedExecutionException);
+        release.countDown();
+        waitFor(() -> executor.getActiveCount() == 0);
+        assertEquals(0, ran.get());
+    }
+    
+    @Test
+    public void nestedSubmissionWithoutAFreeSlotIsRejected() throws Exception {
+        CountDownLatch attempted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                try {
+                    // Both slots are held by the two outer tasks until both have tried
+                    executor.execute(() -> { });
+                } catch (RejectedExecutionException e) {
+                    rejected.incrementAndGet();
+                } finally {
+                    attempted.countDown();
+                    await(attempted);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, rejected.get());
+    }
+    
+    @Test
+    public void shutDownPoolRejectsWithoutTakingASlot() {
+        executor.shutdown();
+        try {
+            executor.execute(() -> { });
+            fail("expected rejection");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(0, executor.getActiveCount());
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
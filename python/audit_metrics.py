@@ -0,0 +1,228 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+"""
+Audit Metrics
+Prometheus/OpenMetrics metrics of an audit run: jobs in flight and queued, jobs by status,
+files, rows and bytes scanned per format, job duration histograms per format and errors by
+exception class. Exposed on a local HTTP endpoint and/or written to a text file that can be
+pushed or picked up by a collector. Standard library only.
+"""
+
+import os
+import time
+import tempfile
+import threading
+import logging
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+from typing import Dict, Any, Optional, Tuple
+
+logger = logging.getLogger(__name__)
+
+CONTENT_TYPE = 'application/openmetrics-text; version=1.0.0; charset=utf-8'
+
+PREFIX = 'hdfs_audit_'
+
+# 单个 job 耗时分桶（秒），覆盖 footer 级别的秒级 job 到整点大表的小时级 job
+DURATION_BUCKETS = (1, 5, 10, 30, 60, 120, 300, 600, 1800, 3600)
+
+
+def _escape(value: str) -> str:
+    return str(value).replace('\\', '\\\\').replace('"', '\\"').replace('\n', '\\n')
+
+
+def _labels(**labels: str) -> str:
+    if not labels:
+        return ''
+    return '{' + ','.join(f'{k}="{_escape(v)}"' for k, v in labels.items()) + '}'
+
+
+def _value(value: float) -> str:
+    if float(value).is_integer():
+        return str(int(value))
+    return repr(float(value))
+
+
+class AuditMetrics:
+    """Thread-safe counters of the audit runner, rendered in the OpenMetrics text format"""
+
+    def __init__(self):
+        self._lock = threading.Lock()
+        self._jobs_queued = 0
+        self._jobs_in_flight = 0
+        self._jobs: Dict[str, int] = {}
+        self._files: Dict[str, int] = {}
+        self._rows: Dict[str, int] = {}
+        self._bytes: Dict[str, int] = {}
+        self._file_errors: Dict[Tuple[str, str], int] = {}
+        self._errors: Dict[str, int] = {}
+        # format -> (bucket counts, count, sum)
+        self._durations: Dict[str, Tuple[list, int, float]] = {}
+        self._last_run_timestamp: Optional[float] = None
+        self._last_run_duration: Optional[float] = None
+        self._server: Optional[ThreadingHTTPServer] = None
+
+    def jobs_queued(self, count: int) -> None:
+        """Jobs handed to the executor but not started yet"""
+        with self._lock:
+            self._jobs_queued += count
+
+    def job_started(self, count: int = 1) -> None:
+        with self._lock:
+            self._jobs_queued = max(0, self._jobs_queued - count)
+            self._jobs_in_flight += count
+
+    def job_finished(self, job: Dict[str, Any], result, seconds: Optional[float] = None) -> None:
+        """
+        Record a job the jar answered for (success, partial or failed)
+
+        Args:
+            job: Audit job dict
+            result: CounterResult
+            seconds: Wall time seen by the runner; defaults to the jar's duration_ms
+        """
+        fmt = str(job.get('format', '')).lower()
+        if seconds is None:
+            seconds = (result.duration_ms or 0) / 1000.0
+        with self._lock:
+            self._jobs_in_flight = max(0, self._jobs_in_flight - 1)
+            self._inc(self._jobs, result.status)
+            self._inc(self._files, fmt, result.success_file_count or 0)
+            if result.row_count and result.row_count > 0:
+                self._inc(self._rows, fmt, result.row_count)
+            self._inc(self._bytes, fmt, result.total_size_bytes or 0)
+            for error in result.errors or []:
+                error_class = (error.get('error_class') if isinstance(error, dict) else None) or 'unknown'
+                self._inc(self._file_errors, (fmt, error_class))
+            buckets, count, total = self._durations.get(fmt) or ([0] * (len(DURATION_BUCKETS) + 1), 0, 0.0)
+            index = next((i for i, bound in enumerate(DURATION_BUCKETS) if seconds <= bound), len(DURATION_BUCKETS))
+            buckets[index] += 1
+            self._durations[fmt] = (buckets, count + 1, total + seconds)
+
+    def job_aborted(self) -> None:
+        """A started job that raised instead of returning a result"""
+        with self._lock:
+            self._jobs_in_flight = max(0, self._jobs_in_flight - 1)
+
+    def job_error(self, error: BaseException) -> None:
+        """A job that ended with an exception in the runner (jar call or database write)"""
+        with self._lock:
+            self._inc(self._jobs, 'error')
+            self._inc(self._errors, type(error).__name__)
+
+    def run_finished(self, seconds: float) -> None:
+        with self._lock:
+            self._last_run_timestamp = time.time()
+            self._last_run_duration = seconds
+            self._jobs_queued = 0
+            self._jobs_in_flight = 0
+
+    @staticmethod
+    def _inc(counter: Dict[Any, int], key: Any, amount: int = 1) -> None:
+        counter[key] = counter.get(key, 0) + amount
+
+    def render(self) -> str:
+        """All metrics in the OpenMetrics text format, ending with # EOF"""
+        lines = []
+
+        def family(name: str, kind: str, help_text: str, unit: Optional[str] = None):
+            lines.append(f'# TYPE {PREFIX}{name} {kind}')
+            if unit:
+                lines.append(f'# UNIT {PREFIX}{name} {unit}')
+            lines.append(f'# HELP {PREFIX}{name} {help_text}')
+
+        def sample(name: str, value: float, **labels: str):
+            lines.append(f'{PREFIX}{name}{_labels(**labels)} {_value(value)}')
+
+        with self._lock:
+            family('jobs_queued', 'gauge', 'Jobs waiting for a worker')
+            sample('jobs_queued', self._jobs_queued)
+            family('jobs_in_flight', 'gauge', 'Jobs being counted')
+            sample('jobs_in_flight', self._jobs_in_flight)
+            family('jobs', 'counter', 'Jobs completed, by status (error: exception in the runner)')
+            for status in sorted(self._jobs):
+                sample('jobs_total', self._jobs[status], status=status)
+            family('files', 'counter', 'Files counted successfully')
+            for fmt in sorted(self._files):
+                sample('files_total', self._files[fmt], format=fmt)
+            family('rows', 'counter', 'Rows counted')
+            for fmt in sorted(self._rows):
+                sample('rows_total', self._rows[fmt], format=fmt)
+            family('scanned_bytes', 'counter', 'Size of the files scanned', unit='bytes')
+            for fmt in sorted(self._bytes):
+                sample('scanned_bytes_total', self._bytes[fmt], format=fmt)
+            family('file_errors', 'counter', 'Per-file errors reported by hdfs-counter, by error class')
+            for fmt, error_class in sorted(self._file_errors):
+                sample('file_errors_total', self._file_errors[(fmt, error_class)], format=fmt, error_class=error_class)
+            family('errors', 'counter', 'Job exceptions in the runner, by exception class')
+            for name in sorted(self._errors):
+                sample('errors_total', self._errors[name], exception=name)
+            family('job_duration_seconds', 'histogram', 'Time to count one job', unit='seconds')
+            for fmt in sorted(self._durations):
+                buckets, count, total = self._durations[fmt]
+                cumulative = 0
+                for bound, bucket in zip(list(DURATION_BUCKETS) + ['+Inf'], buckets):
+                    cumulative += bucket
+                    le = bound if bound == '+Inf' else f'{float(bound)}'
+                    sample('job_duration_seconds_bucket', cumulative, format=fmt, le=le)
+                sample('job_duration_seconds_count', count, format=fmt)
+                sample('job_duration_seconds_sum', total, format=fmt)
+            if self._last_run_timestamp is not None:
+                family('last_run_timestamp_seconds', 'gauge', 'End of the last audit run', unit='seconds')
+                sample('last_run_timestamp_seconds', self._last_run_timestamp)
+                family('last_run_duration_seconds', 'gauge', 'Wall time of the last audit run', unit='seconds')
+                sample('last_run_duration_seconds', self._last_run_duration)
+
+        lines.append('# EOF')
+        return '\n'.join(lines) + '\n'
+
+    def write_file(self, path: str) -> None:
+        """Write the metrics atomically (temp file + rename), so readers never see a partial file"""
+        directory = os.path.dirname(os.path.abspath(path))
+        fd, tmp_path = tempfile.mkstemp(prefix='.hdfs-audit-metrics-', dir=directory)
+        try:
+            with os.fdopen(fd, 'w', encoding='utf-8') as f:
+                f.write(self.render())
+            os.replace(tmp_path, path)
+        except Exception:
+            try:
+                os.remove(tmp_path)
+            except OSError:
+                pass
+            raise
+
+    def serve(self, port: int, host: str = '') -> int:
+        """
+        Serve GET /metrics on a daemon thread
+
+        Returns:
+            The bound port (useful with port 0)
+        """
+        metrics = self
+
+        class Handler(BaseHTTPRequestHandler):
+            def do_GET(self):
+                if self.path.split('?', 1)[0] != '/metrics':
+                    self.send_error(404)
+                    return
+                body = metrics.render().encode('utf-8')
+                self.send_response(200)
+                self.send_header('Content-Type', CONTENT_TYPE)
+                self.send_header('Content-Length', str(len(body)))
+                self.end_headers()
+                self.wfile.write(body)
+
+            def log_message(self, format, *args):
+                logger.debug("metrics: " + format, *args)
+
+        self._server = ThreadingHTTPServer((host, port), Handler)
+        self._server.daemon_threads = True
+        threading.Thread(target=self._server.serve_forever, name='audit-metrics', daemon=True).start()
+        bound = self._server.server_address[1]
+        logger.info(f"Serving metrics on http://{host or '0.0.0.0'}:{bound}/metrics")
+        return bound
+
+    def close(self) -> None:
+        if self._server is not None:
+            self._server.shutdown()
+            self._server.server_close()
+            self._server = None
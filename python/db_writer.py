@@ -24,6 +24,23 @@ class AuditDbWriter:
     
     # SQL statement for append mode
     INSERT_SQL = """
+        INSERT INTO audit_result (
+            task_name, interface_id, platform_id, partner_id,
+            table_name, hdfs_path,
+            period_type, batch_no, data_date, data_month, data_hour,
+            row_count, file_count, total_size_bytes,
+            status, error_msg, duration_ms, metrics, created_at
+        ) VALUES (
+            %(task_name)s, %(interface_id)s, %(platform_id)s, %(partner_id)s,
+            %(table_name)s, %(hdfs_path)s,
+            %(period_type)s, %(batch_no)s, %(data_date)s, %(data_month)s, %(data_hour)s,
+            %(row_count)s, %(file_count)s, %(total_size_bytes)s,
+            %(status)s, %(error_msg)s, %(duration_ms)s, %(metrics)s, %(created_at)s
+        )
+    """
+    
+    # Databases created before the metrics column (scripts/upgrade_add_metrics.sql adds it)
+    INSERT_SQL_WITHOUT_METRICS = """
         INSERT INTO audit_result (
             task_name, interface_id, platform_id, partner_id,
             table_name, hdfs_path,
@@ -48,6 +65,7 @@ class AuditDbWriter:
             pool_size: Connection pool size
         """
         self.db_config = db_config
+        self._insert_sql: Optional[str] = None
         
         # Create connection pool
         self.pool = PooledDB(
@@ -76,6 +94,20 @@ class AuditDbWriter:
         finally:
             conn.close()
     
+    def _get_insert_sql(self, conn) -> str:
+        """INSERT statement matching the table, checked once per writer"""
+        if self._insert_sql is None:
+            with conn.cursor() as cursor:
+                cursor.execute("SHOW COLUMNS FROM audit_result LIKE 'metrics'")
+                has_metrics = cursor.fetchone() is not None
+            if has_metrics:
+                self._insert_sql = self.INSERT_SQL
+            else:
+                logger.warning("audit_result has no metrics column, run metrics will not be stored; "
+                               "apply scripts/upgrade_add_metrics.sql to add it")
+                self._insert_sql = self.INSERT_SQL_WITHOUT_METRICS
+        return self._insert_sql
+    
     def write_result(self, task_name: str, table_name: str, hdfs_path: str,
                      result: CounterResult,
                      interface_id: str = '',
@@ -133,13 +165,15 @@ class AuditDbWriter:
             'status': result.status,
             'error_msg': result.get_error_message(),
             'duration_ms': result.duration_ms,
+            'metrics': result.get_metrics_json(),
             'created_at': datetime.now()
         }
         
         with self.get_connection() as conn:
             try:
+                insert_sql = self._get_insert_sql(conn)
                 with conn.cursor() as cursor:
-                    affected = cursor.execute(self.INSERT_SQL, data)
+                    affected = cursor.execute(insert_sql, data)
                     conn.commit()
                     
                     logger.info(
@@ -7,9 +7,13 @@ Wrapper for calling hdfs-counter.jar CLI tool
 
 import os
 import json
+import itertools
 import subprocess
+import tempfile
+import threading
 import logging
-from typing import Dict, Any, Optional, Tuple
+from concurrent.futures import Future, TimeoutError as FutureTimeoutError
+from typing import Dict, Any, Iterator, List, Optional, Tuple
 from dataclasses import dataclass
 
 logger = logging.getLogger(__name__)
@@ -26,6 +30,7 @@ class CounterResult:
     status: str  # 'success', 'partial', 'failed'
     duration_ms: int
     errors: list
+    metrics: Optional[Dict[str, Any]] = None  # phase timings, latency percentiles, read statistics
     
     @classmethod
     def from_json(cls, data: Dict[str, Any]) -> 'CounterResult':
@@ -38,7 +43,8 @@ class CounterResult:
             total_size_bytes=data.get('total_size_bytes', 0),
             status=data.get('status', 'failed'),
             duration_ms=data.get('duration_ms', 0),
-            errors=data.get('errors', [])
+            errors=data.get('errors', []),
+            metrics=data.get('metrics')
         )
     
     @classmethod
@@ -68,6 +74,12 @@ class CounterResult:
         if not self.errors:
             return None
         return json.dumps(self.errors, ensure_ascii=False)
+    
+    def get_metrics_json(self) -> Optional[str]:
+        """Get run metrics as a JSON string for storage"""
+        if not self.metrics:
+            return None
+        return json.dumps(self.metrics, ensure_ascii=False, sort_keys=True)
 
 
 class HdfsCounterClient:
@@ -78,7 +90,10 @@ class HdfsCounterClient:
     
     def __init__(self, jar_path: Optional[str] = None, java_home: Optional[str] = None,
                  hadoop_conf_dir: Optional[str] = None,
-                 timeout: int = 3600):
+                 timeout: int = 3600,
+                 persistent: bool = False,
+                 cache_dir: Optional[str] = None,
+                 metrics_port: Optional[int] = None):
         """
         Initialize HDFS Counter client
         
@@ -87,12 +102,30 @@ class HdfsCounterClient:
             java_home: Optional JAVA_HOME path (默认从环境变量 JAVA_HOME 获取)
             hadoop_conf_dir: Optional HADOOP_CONF_DIR path (默认从环境变量 HADOOP_CONF_DIR 获取)
             timeout: Command timeout in seconds (default: 1 hour)
+            persistent: 常驻模式。启动一个 `--serve` 进程复用 JVM/FileSystem/线程池，
+                        通过 stdin/stdout 按行收发 JSON，而不是每个 job 启动一次 jar
+            cache_dir: ORC/Parquet footer 行数缓存目录（传给 jar 的 --cache-dir），
+                       按 路径+长度+修改时间 命中，未变化的文件不再读取 footer
+            metrics_port: serve/batch 模式下 jar 暴露 OpenMetrics 指标的端口（--metrics-port）；
+                          process 模式每个 job 一个 JVM，端口会冲突，因此不传
         """
         # 优先级: 参数 > 环境变量
         self.jar_path = jar_path or os.environ.get(self.ENV_JAR_PATH)
         self.java_home = java_home or os.environ.get('JAVA_HOME')
         self.hadoop_conf_dir = hadoop_conf_dir or os.environ.get('HADOOP_CONF_DIR')
         self.timeout = timeout
+        self.persistent = persistent
+        self.cache_dir = cache_dir
+        self.metrics_port = metrics_port
+        
+        # Persistent (--serve) mode state
+        self._server: Optional[subprocess.Popen] = None
+        self._server_lock = threading.Lock()
+        self._pending: Dict[str, Future] = {}
+        # job_ids given up on (timed out): their late result lines are dropped quietly
+        self._cancelled: set = set()
+        self._server_threads: Optional[int] = None
+        self._job_ids = itertools.count(1)
         
         # Validate jar path is provided
         if not self.jar_path:
@@ -111,6 +144,13 @@ class HdfsCounterClient:
         else:
             self.java_cmd = 'java'
     
+    def _common_args(self) -> List[str]:
+        """jar 参数中与调用方式无关的部分"""
+        args = []
+        if self.cache_dir:
+            args.extend(['--cache-dir', self.cache_dir])
+        return args
+    
     def count(self, hdfs_path: str, file_format: str,
               threads: int = 10, delimiter: str = '\\n') -> CounterResult:
         """
@@ -119,12 +159,16 @@ class HdfsCounterClient:
         Args:
             hdfs_path: HDFS directory path
             file_format: File format (orc, parquet, textfile)
-            threads: Number of threads for parallel processing
+            threads: Number of threads for parallel processing. In persistent mode it only
+                     sizes the server if this call starts it; the pool is shared afterwards
             delimiter: Line delimiter for textfile format
             
         Returns:
             CounterResult with row count and status
         """
+        if self.persistent:
+            return self._count_via_server(hdfs_path, file_format, threads, delimiter)
+        
         # Build command
         cmd = [
             self.java_cmd,
@@ -132,7 +176,7 @@ class HdfsCounterClient:
             '--path', hdfs_path,
             '--format', file_format,
             '--threads', str(threads)
-        ]
+        ] + self._common_args()
         
         # Add delimiter for textfile
         if file_format.lower() == 'textfile':
@@ -140,11 +184,6 @@ class HdfsCounterClient:
         
         logger.info(f"Executing: {' '.join(cmd)}")
         
-        # Set environment
-        env = os.environ.copy()
-        if self.hadoop_conf_dir:
-            env['HADOOP_CONF_DIR'] = self.hadoop_conf_dir
-        
         try:
             # Execute command
             process = subprocess.run(
@@ -152,7 +191,7 @@ class HdfsCounterClient:
                 capture_output=True,
                 text=True,
                 timeout=self.timeout,
-                env=env
+                env=self._build_env()
             )
             
             # Log stderr if any
@@ -191,6 +230,265 @@ class HdfsCounterClient:
             logger.error(f"Command execution failed: {e}")
             return CounterResult.create_error(hdfs_path, str(e))
     
+    def _metrics_args(self) -> List[str]:
+        """单个常驻/批量 JVM 才暴露指标端口"""
+        if self.metrics_port is None:
+            return []
+        return ['--metrics-port', str(self.metrics_port)]
+    
+    def count_batch(self, jobs: List[Dict[str, Any]], threads: int = 10,
+                    timeout: Optional[int] = None) -> Iterator[Tuple[Dict[str, Any], CounterResult]]:
+        """
+        Count many jobs with a single `--manifest` invocation sharing one jar thread pool.
+        Results are yielded as the jar finishes each job, not in input order.
+        
+        Args:
+            jobs: Audit job dicts containing hdfs_path, format, delimiter
+            threads: Size of the jar's shared counting pool
+            timeout: Timeout in seconds for the whole batch (default: client timeout)
+            
+        Yields:
+            (job, CounterResult) for every job; jobs without a result line are reported as failed
+        """
+        if not jobs:
+            return
+        timeout = timeout or self.timeout
+        
+        with tempfile.NamedTemporaryFile('w', encoding='utf-8', suffix='.jsonl',
+                                         prefix='hdfs-counter-manifest-', delete=False) as f:
+            manifest_path = f.name
+            for i, job in enumerate(jobs):
+                f.write(json.dumps({
+                    'job_id': str(i),
+                    'path': job['hdfs_path'],
+                    'format': job['format'],
+                    'delimiter': job.get('delimiter', '\\n')
+                }, ensure_ascii=False) + '\n')
+        
+        cmd = [
+            self.java_cmd,
+            '-jar', self.jar_path,
+            '--manifest', manifest_path,
+            '--threads', str(threads)
+        ] + self._common_args() + self._metrics_args()
+        logger.info(f"Executing batch of {len(jobs)} jobs: {' '.join(cmd)}")
+        
+        remaining = {str(i): job for i, job in enumerate(jobs)}
+        process = subprocess.Popen(
+            cmd,
+            stdout=subprocess.PIPE,
+            stderr=subprocess.PIPE,
+            text=True,
+            encoding='utf-8',
+            env=self._build_env()
+        )
+        threading.Thread(target=self._drain_stderr, args=(process,),
+                         name='hdfs-counter-stderr', daemon=True).start()
+        watchdog = threading.Timer(timeout, process.kill)
+        watchdog.start()
+        
+        try:
+            for line in process.stdout:
+                if not line.strip():
+                    continue
+                data, err = self._try_parse_json(line)
+                if data is None:
+                    logger.warning(f"Ignoring non-JSON batch output ({err}): {line.strip()}")
+                    continue
+                job = remaining.pop(str(data.get('job_id')), None)
+                if job is None:
+                    logger.warning(f"Result for unknown job_id in batch output: {line.strip()}")
+                    continue
+                yield job, CounterResult.from_json(data)
+            
+            exit_code = process.wait()
+            timed_out = not watchdog.is_alive() and exit_code < 0
+        finally:
+            watchdog.cancel()
+            if process.poll() is None:
+                process.kill()
+            try:
+                os.remove(manifest_path)
+            except OSError:
+                pass
+        
+        if remaining:
+            reason = f"Timeout after {timeout}s" if timed_out else f"No result in batch output (exit={exit_code})"
+            logger.error(f"Batch finished with {len(remaining)} jobs missing: {reason}")
+            for job in remaining.values():
+                yield job, CounterResult.create_error(job['hdfs_path'], reason)
+    
+    def _build_env(self) -> Dict[str, str]:
+        """Environment for the java process"""
+        env = os.environ.copy()
+        if self.hadoop_conf_dir:
+            env['HADOOP_CONF_DIR'] = self.hadoop_conf_dir
+        return env
+    
+    def start_server(self, threads: int = 10) -> None:
+        """
+        Start the long-running `--serve` process if it is not running yet.
+        
+        Args:
+            threads: Size of the jar's shared counting pool and number of requests counted at
+                     once. Fixed for the server's lifetime: later calls with another value only
+                     log a warning, the running server keeps its pool
+        """
+        self._start_server(threads, warn_if_running=True)
+    
+    def _start_server(self, threads: int, warn_if_running: bool) -> None:
+        with self._server_lock:
+            if self._server is not None and self._server.poll() is None:
+                if warn_if_running and threads != self._server_threads:
+                    logger.warning(f"hdfs-counter server already running with --threads {self._server_threads}, "
+                                   f"ignoring threads={threads}")
+                return
+            
+            cmd = [
+                self.java_cmd,
+                '-jar', self.jar_path,
+                '--serve',
+                '--threads', str(threads)
+            ] + self._common_args() + self._metrics_args()
+            logger.info(f"Starting hdfs-counter server: {' '.join(cmd)}")
+            
+            server = subprocess.Popen(
+                cmd,
+                stdin=subprocess.PIPE,
+                stdout=subprocess.PIPE,
+                stderr=subprocess.PIPE,
+                text=True,
+                encoding='utf-8',
+                bufsize=1,
+                env=self._build_env()
+            )
+            self._server = server
+            self._server_threads = threads
+            threading.Thread(target=self._read_responses, args=(server,),
+                             name='hdfs-counter-stdout', daemon=True).start()
+            threading.Thread(target=self._drain_stderr, args=(server,),
+                             name='hdfs-counter-stderr', daemon=True).start()
+    
+    def _count_via_server(self, hdfs_path: str, file_format: str,
+                          threads: int, delimiter: str) -> CounterResult:
+        """Send one request to the `--serve` process and wait for its result line"""
+        # Per-job threads cannot resize a running server, so no warning here
+        self._start_server(threads, warn_if_running=False)
+        
+        job_id = str(next(self._job_ids))
+        request = {
+            'job_id': job_id,
+            'path': hdfs_path,
+            'format': file_format,
+            'delimiter': delimiter
+        }
+        future: Future = Future()
+        
+        with self._server_lock:
+            server = self._server
+            self._pending[job_id] = future
+            try:
+                server.stdin.write(json.dumps(request, ensure_ascii=False) + '\n')
+                server.stdin.flush()
+            except (OSError, ValueError) as e:
+                self._pending.pop(job_id, None)
+                logger.error(f"Failed to send request to hdfs-counter server: {e}")
+                return CounterResult.create_error(hdfs_path, f"Server unavailable: {e}")
+        
+        logger.info(f"Sent request {job_id} to hdfs-counter server: path={hdfs_path}, format={file_format}")
+        
+        try:
+            data = future.result(timeout=self.timeout)
+        except FutureTimeoutError:
+            self._cancel_request(job_id)
+            logger.error(f"Request {job_id} timed out after {self.timeout} seconds")
+            return CounterResult.create_error(hdfs_path, f"Timeout after {self.timeout}s")
+        except Exception as e:
+            logger.error(f"Request {job_id} failed: {e}")
+            return CounterResult.create_error(hdfs_path, str(e))
+        
+        result = CounterResult.from_json(data)
+        logger.info(
+            f"Count result for {hdfs_path}: "
+            f"rows={result.row_count}, files={result.file_count}, status={result.status}"
+        )
+        return result
+    
+    def _cancel_request(self, job_id: str) -> None:
+        """Stop waiting for a request and tell the server to stop counting it"""
+        with self._server_lock:
+            if self._pending.pop(job_id, None) is None:
+                return
+            self._cancelled.add(job_id)
+            server = self._server
+            if server is None:
+                return
+            try:
+                server.stdin.write(json.dumps({'job_id': job_id, 'cancel': True}) + '\n')
+                server.stdin.flush()
+            except (OSError, ValueError) as e:
+                logger.warning(f"Failed to cancel request {job_id}: {e}")
+    
+    def _read_responses(self, server: subprocess.Popen) -> None:
+        """Dispatch result lines from the server to waiting requests by job_id"""
+        for line in server.stdout:
+            if not line.strip():
+                continue
+            data, err = self._try_parse_json(line)
+            if data is None:
+                logger.warning(f"Ignoring non-JSON server output ({err}): {line.strip()}")
+                continue
+            job_id = str(data.get('job_id'))
+            with self._server_lock:
+                future = self._pending.pop(job_id, None)
+                cancelled = future is None and job_id in self._cancelled
+                self._cancelled.discard(job_id)
+            if cancelled:
+                logger.debug(f"Dropping result of cancelled request {job_id}")
+                continue
+            if future is None:
+                logger.warning(f"Result for unknown job_id from hdfs-counter server: {line.strip()}")
+                continue
+            future.set_result(data)
+        
+        # stdout closed: the server is gone, fail everything still waiting on it
+        exit_code = server.wait()
+        with self._server_lock:
+            pending = self._pending
+            self._pending = {}
+            self._cancelled.clear()
+            if self._server is server:
+                self._server = None
+        if pending:
+            logger.error(f"hdfs-counter server exited (code={exit_code}) with {len(pending)} pending requests")
+        for future in pending.values():
+            future.set_exception(RuntimeError(f"hdfs-counter server exited with code {exit_code}"))
+    
+    def _drain_stderr(self, server: subprocess.Popen) -> None:
+        """Forward server logs so the stderr pipe never fills up"""
+        for line in server.stderr:
+            line = line.rstrip()
+            if line:
+                logger.info(f"[hdfs-counter] {line}")
+    
+    def close(self) -> None:
+        """Stop the `--serve` process (closing stdin lets it finish in-flight requests first)"""
+        with self._server_lock:
+            server = self._server
+            self._server = None
+        if server is None or server.poll() is not None:
+            return
+        
+        try:
+            server.stdin.close()
+            server.wait(timeout=60)
+        except subprocess.TimeoutExpired:
+            logger.warning("hdfs-counter server did not exit in time, killing it")
+            server.kill()
+        except OSError as e:
+            logger.warning(f"Error while stopping hdfs-counter server: {e}")
+        logger.info("hdfs-counter server stopped")
+    
     def _try_parse_json(self, text: str) -> Tuple[Optional[Dict[str, Any]], Optional[str]]:
         """
         Try parsing JSON from text output.
@@ -11,6 +11,7 @@ Orchestrates the data audit process:
 
 import os
 import sys
+import time
 import argparse
 import logging
 from datetime import datetime, timedelta
@@ -22,6 +23,7 @@ from task_fetcher import create_task_fetcher, TaskFetcher, ClickHouseTaskFetcher
 from hdfs_counter_client import HdfsCounterClient, CounterResult
 from db_writer import AuditDbWriter
 from watermark_store import FileWatermarkStore
+from audit_metrics import AuditMetrics
 
 # Configure logging
 logging.basicConfig(
@@ -41,7 +43,10 @@ class HdfsAuditRunner:
     def __init__(self, config_path: str, db_config_path: str, jar_path: str,
                  java_home: Optional[str] = None,
                  hadoop_conf_dir: Optional[str] = None,
-                 skip_db_init: bool = False):
+                 skip_db_init: bool = False,
+                 jar_mode: Optional[str] = None,
+                 metrics_port: Optional[int] = None,
+                 metrics_file: Optional[str] = None):
         """
         Initialize audit runner
         
@@ -51,19 +56,36 @@ class HdfsAuditRunner:
             jar_path: Path to hdfs-counter.jar
             java_home: Optional JAVA_HOME path
             hadoop_conf_dir: Optional HADOOP_CONF_DIR path
+            jar_mode: How to call the jar: 'process' (one JVM per job), 'serve'
+                      (one long-running JVM for the whole run) or 'batch' (all jobs in one
+                      manifest invocation). Defaults to config jar_options.mode
+            metrics_port: Serve Prometheus/OpenMetrics metrics of the run on this port
+            metrics_file: Write the same metrics to this file at the end of each run
         """
         # Load configurations
         self.config_loader = ConfigLoader(config_path)
         self.db_config_loader = DbConfigLoader(db_config_path)
         self._db_config_path = db_config_path
         
+        self.jar_mode = (jar_mode or self.config_loader.get_jar_options().get('mode') or 'process').lower()
+        if self.jar_mode not in ('process', 'serve', 'batch'):
+            raise ValueError(f"Unsupported jar mode: {self.jar_mode} (expected process, serve or batch)")
+        
         # Initialize clients
         self.counter_client = HdfsCounterClient(
             jar_path=jar_path,
             java_home=java_home,
-            hadoop_conf_dir=hadoop_conf_dir
+            hadoop_conf_dir=hadoop_conf_dir,
+            persistent=(self.jar_mode == 'serve'),
+            cache_dir=self._resolve_cache_dir(config_path),
+            metrics_port=self.config_loader.get_jar_options().get('metrics_port')
         )
         
+        self.metrics = AuditMetrics()
+        self.metrics_file = metrics_file
+        if metrics_port is not None:
+            self.metrics.serve(metrics_port)
+        
         self.db_writer: Optional[AuditDbWriter] = None
         if not skip_db_init:
             self.db_writer = AuditDbWriter(
@@ -81,6 +103,14 @@ class HdfsAuditRunner:
         
         logger.info("HdfsAuditRunner initialized")
     
+    def _resolve_cache_dir(self, config_path: str) -> Optional[str]:
+        """jar_options.cache_dir，相对路径按 config.yml 所在目录解析"""
+        cache_dir = self.config_loader.get_jar_options().get('cache_dir')
+        if cache_dir and not os.path.isabs(cache_dir):
+            base_dir = os.path.dirname(os.path.abspath(config_path))
+            cache_dir = os.path.normpath(os.path.join(base_dir, cache_dir))
+        return cache_dir or None
+    
     def set_task_fetcher(self, fetcher: TaskFetcher):
         """Set task fetcher implementation"""
         self.task_fetcher = fetcher
@@ -96,9 +126,21 @@ class HdfsAuditRunner:
             Tuple of (job, result)
         """
         logger.info(f"Processing job: {job['table_name']} (platform_id={job.get('platform_id', '')})")
-        result = self.counter_client.count_job(job)
+        result = self._count_job(job)
         return job, result
     
+    def _count_job(self, job: Dict[str, Any]) -> CounterResult:
+        """Run the jar for one job, recording it in the run metrics"""
+        self.metrics.job_started()
+        start = time.monotonic()
+        try:
+            result = self.counter_client.count_job(job)
+        except Exception:
+            self.metrics.job_aborted()
+            raise
+        self.metrics.job_finished(job, result, time.monotonic() - start)
+        return result
+    
     def run(self, data_date: Optional[str] = None,
             task_names: Optional[List[str]] = None,
             dry_run: bool = False,
@@ -291,6 +333,10 @@ class HdfsAuditRunner:
             f"effective={concurrency * max_threads_in_jobs})"
         )
         
+        if self.jar_mode == 'serve' and not dry_run:
+            # One JVM for the whole run; its shared pool replaces the per-job thread pools
+            self.counter_client.start_server(threads=concurrency * max_threads_in_jobs)
+        
         # Execute jobs
         results = {
             'total': len(jobs),
@@ -312,6 +358,9 @@ class HdfsAuditRunner:
                     'partner_id': job.get('partner_id', ''),
                     'status': 'dry_run'
                 })
+        elif self.jar_mode == 'batch':
+            # Hand the whole run to one jar invocation
+            results = self._run_batch(jobs, results, concurrency * max_threads_in_jobs, concurrency)
         elif concurrency <= 1:
             # Serial execution
             results = self._run_serial(jobs, results)
@@ -321,6 +370,12 @@ class HdfsAuditRunner:
         
         # Summary
         duration = (datetime.now() - start_time).total_seconds()
+        self.metrics.run_finished(duration)
+        if self.metrics_file and not dry_run:
+            try:
+                self.metrics.write_file(self.metrics_file)
+            except OSError as e:
+                logger.warning(f"Failed to write metrics file {self.metrics_file}: {e}")
         logger.info(
             f"Audit run completed in {duration:.1f}s. "
             f"Total: {results['total']}, "
@@ -354,17 +409,19 @@ class HdfsAuditRunner:
     
     def _run_serial(self, jobs: List[Dict[str, Any]], results: dict) -> dict:
         """Run jobs serially (one by one)"""
+        self.metrics.jobs_queued(len(jobs))
         for i, job in enumerate(jobs, 1):
             logger.info(f"Processing job {i}/{len(jobs)}: {job['table_name']} (platform_id={job.get('platform_id', '')})")
             
             try:
-                result = self.counter_client.count_job(job)
+                result = self._count_job(job)
                 if not self.db_writer:
                     raise RuntimeError("Database writer is not initialized")
                 self.db_writer.write_job_result(job, result)
                 self._update_results(results, job, result)
             except Exception as e:
                 logger.error(f"Error processing job {job['table_name']}: {e}")
+                self.metrics.job_error(e)
                 results['failed'] += 1
                 results['details'].append({
                     'table': job['table_name'],
@@ -382,6 +439,7 @@ class HdfsAuditRunner:
                       concurrency: int) -> dict:
         """Run jobs in parallel using thread pool"""
         logger.info(f"Starting parallel execution with {concurrency} workers")
+        self.metrics.jobs_queued(len(jobs))
         
         with ThreadPoolExecutor(max_workers=concurrency) as executor:
             # Submit all jobs
@@ -406,6 +464,7 @@ class HdfsAuditRunner:
                     logger.info(f"Completed {completed}/{len(jobs)}: {job['table_name']} - {result.status}")
                 except Exception as e:
                     logger.error(f"Error processing job {job['table_name']}: {e}")
+                    self.metrics.job_error(e)
                     results['failed'] += 1
                     results['details'].append({
                         'table': job['table_name'],
@@ -419,6 +478,43 @@ class HdfsAuditRunner:
         
         return results
     
+    def _run_batch(self, jobs: List[Dict[str, Any]], results: dict,
+                   threads: int, concurrency: int) -> dict:
+        """Run all jobs in a single hdfs-counter --manifest invocation"""
+        logger.info(f"Starting batch execution of {len(jobs)} jobs with {threads} jar threads")
+        
+        # Allow the batch as long as the equivalent process-mode run would have taken at worst
+        rounds = (len(jobs) + concurrency - 1) // max(1, concurrency)
+        timeout = self.counter_client.timeout * max(1, rounds)
+        
+        # The jar schedules the whole manifest itself, so every job is in flight until answered
+        self.metrics.job_started(len(jobs))
+        completed = 0
+        for job, result in self.counter_client.count_batch(jobs, threads=threads, timeout=timeout):
+            completed += 1
+            self.metrics.job_finished(job, result)
+            try:
+                if not self.db_writer:
+                    raise RuntimeError("Database writer is not initialized")
+                self.db_writer.write_job_result(job, result)
+                self._update_results(results, job, result)
+                logger.info(f"Completed {completed}/{len(jobs)}: {job['table_name']} - {result.status}")
+            except Exception as e:
+                logger.error(f"Error processing job {job['table_name']}: {e}")
+                self.metrics.job_error(e)
+                results['failed'] += 1
+                results['details'].append({
+                    'table': job['table_name'],
+                    'path': job['hdfs_path'],
+                    'interface_id': job.get('interface_id', ''),
+                    'platform_id': job.get('platform_id', ''),
+                    'partner_id': job.get('partner_id', ''),
+                    'status': 'error',
+                    'error': str(e)
+                })
+        
+        return results
+    
     def _update_results(self, results: dict, job: Dict[str, Any], 
                         result: CounterResult) -> None:
         """Update results dict with job result"""
@@ -441,6 +537,8 @@ class HdfsAuditRunner:
     
     def close(self):
         """Clean up resources"""
+        self.metrics.close()
+        self.counter_client.close()
         if self.db_writer:
             self.db_writer.close()
         if isinstance(self.task_fetcher, ClickHouseTaskFetcher):
@@ -466,6 +564,15 @@ Examples:
   # Run with 10 concurrent jobs
   python main.py --concurrency 10
   
+  # Reuse one long-running hdfs-counter JVM for all jobs
+  python main.py --jar-mode serve
+  
+  # Hand the whole run to one hdfs-counter invocation (manifest batch)
+  python main.py --jar-mode batch
+  
+  # Expose Prometheus/OpenMetrics metrics while running, and write them to a file at the end
+  python main.py --metrics-port 9465 --metrics-file ./hdfs_audit_metrics.txt
+  
   # Look back 48 hours for completed tasks
   python main.py --hours-lookback 48
   
@@ -517,6 +624,26 @@ Examples:
         help='HADOOP_CONF_DIR path (env: HADOOP_CONF_DIR)'
     )
     
+    parser.add_argument(
+        '--jar-mode',
+        choices=['process', 'serve', 'batch'],
+        help='How to run hdfs-counter.jar: process (one JVM per job), serve '
+             '(one long-running JVM for all jobs) or batch (one --manifest run for all jobs). '
+             'Default: config jar_options.mode or process'
+    )
+    
+    parser.add_argument(
+        '--metrics-port',
+        type=int,
+        help='Serve Prometheus/OpenMetrics metrics of the run on http://<host>:<port>/metrics'
+    )
+    
+    parser.add_argument(
+        '--metrics-file',
+        help='Write the run metrics in OpenMetrics text format to this file when the run ends '
+             '(replaced atomically, e.g. for pushing to a Pushgateway)'
+    )
+    
     parser.add_argument(
         '--dry-run',
         action='store_true',
@@ -624,7 +751,10 @@ def main():
             jar_path=jar_path,
             java_home=args.java_home,
             hadoop_conf_dir=args.hadoop_conf_dir,
-            skip_db_init=args.dry_run
+            skip_db_init=args.dry_run,
+            jar_mode=args.jar_mode,
+            metrics_port=args.metrics_port,
+            metrics_file=resolve_path(args.metrics_file) if args.metrics_file else None
         )
         
         # Run audit
@@ -45,6 +45,7 @@ CREATE TABLE IF NOT EXISTS audit_result (
     status VARCHAR(20) NOT NULL COMMENT '状态: success/partial/failed',
     error_msg TEXT COMMENT '错误信息（JSON格式）',
     duration_ms INT DEFAULT 0 COMMENT '统计耗时（毫秒）',
+    metrics TEXT COMMENT '运行指标（JSON格式）：列目录/计数耗时、单文件延迟分位数、读取字节数与读操作数',
     
     -- 记录时间
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
@@ -65,6 +66,9 @@ CREATE TABLE IF NOT EXISTS audit_result (
 COMMENT='数据稽核结果表（追加模式）';
 
 
+-- 已有库升级：增加运行指标列请执行 scripts/upgrade_add_metrics.sql（可重复执行）
+
+
 -- -----------------------------------------------------------------------------
 -- 常用查询示例
 -- -----------------------------------------------------------------------------
@@ -109,6 +113,17 @@ COMMENT='数据稽核结果表（追加模式）';
 -- GROUP BY data_date
 -- ORDER BY data_date DESC;
 
+-- 某个表最近 30 天的稽核性能趋势（MySQL 5.7+）
+-- SELECT data_date, duration_ms,
+--     JSON_EXTRACT(metrics, '$.listing_ms') AS listing_ms,
+--     JSON_EXTRACT(metrics, '$.counting_ms') AS counting_ms,
+--     JSON_EXTRACT(metrics, '$.latency_p95_ms') AS latency_p95_ms,
+--     JSON_EXTRACT(metrics, '$.bytes_read') AS bytes_read
+-- FROM audit_result
+-- WHERE table_name = 'dw.user_behavior'
+--   AND data_date >= DATE_SUB(CURDATE(), INTERVAL 30 DAY)
+-- ORDER BY data_date, created_at;
+
 -- 统计 monthly 任务按月汇总
 -- SELECT 
 --     data_month,
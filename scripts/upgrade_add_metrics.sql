@@ -0,0 +1,20 @@
+-- =============================================================================
+-- HDFS 数据稽核系统 - 升级脚本：audit_result 增加 metrics 列
+-- =============================================================================
+-- 适用于在 metrics 列加入 init_db.sql 之前建好的库；新库已包含该列，无需执行
+-- 可重复执行：列已存在时不做任何修改
+
+USE data_audit;
+
+SET @has_metrics = (
+    SELECT COUNT(*) FROM information_schema.COLUMNS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_result' AND COLUMN_NAME = 'metrics'
+);
+
+SET @ddl = IF(@has_metrics = 0,
+    'ALTER TABLE audit_result ADD COLUMN metrics TEXT COMMENT ''运行指标（JSON格式）：列目录/计数耗时、单文件延迟分位数、读取字节数与读操作数'' AFTER duration_ms',
+    'SELECT ''audit_result.metrics already exists'' AS message');
+
+PREPARE upgrade_stmt FROM @ddl;
+EXECUTE upgrade_stmt;
+DEALLOCATE PREPARE upgrade_stmt;